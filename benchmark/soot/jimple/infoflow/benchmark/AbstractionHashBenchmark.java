@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soot.Local;
+import soot.RefType;
+import soot.SootField;
+import soot.jimple.Jimple;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+
+/**
+ * Microbenchmark for the hash codes of abstractions and access paths. Every
+ * operation derives a new abstraction, as the flow functions do, and then
+ * looks it up in a set, as the solver does for the jump functions.
+ *
+ * @author Steven Arzt
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AbstractionHashBenchmark {
+
+	private static final int LOCAL_COUNT = 64;
+	private static final int FIELD_COUNT = 16;
+	private static final int STMT_COUNT = 256;
+	private static final int KNOWN_COUNT = 1024;
+
+	/**
+	 * The statements, locals and fields from which the abstractions are built.
+	 * They are shared by all threads just like the Jimple bodies in the real
+	 * analysis.
+	 */
+	@State(Scope.Benchmark)
+	public static class Program {
+		Local[] locals;
+		SootField[] fields;
+		Stmt[] stmts;
+		Abstraction source;
+		Abstraction[] known;
+		Set<Abstraction> knownFacts;
+		ConcurrentMap<Abstraction, Abstraction> jumpFunctions;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			RefType objType = RefType.v("java.lang.Object");
+			locals = new Local[LOCAL_COUNT];
+			for (int i = 0; i < LOCAL_COUNT; i++)
+				locals[i] = Jimple.v().newLocal("l" + i, objType);
+			fields = new SootField[FIELD_COUNT];
+			for (int i = 0; i < FIELD_COUNT; i++)
+				fields[i] = new SootField("f" + i, objType);
+			stmts = new Stmt[STMT_COUNT];
+			for (int i = 0; i < STMT_COUNT; i++)
+				stmts[i] = Jimple.v().newNopStmt();
+			source = new Abstraction(locals[0], locals[0], stmts[0], false,
+					true, null, true);
+			
+			Worker worker = new Worker();
+			known = new Abstraction[KNOWN_COUNT];
+			knownFacts = new HashSet<Abstraction>();
+			for (int i = 0; i < KNOWN_COUNT; i++) {
+				known[i] = derive(this, worker);
+				knownFacts.add(known[i]);
+			}
+		}
+
+		@Setup(Level.Iteration)
+		public void resetJumpFunctions() {
+			jumpFunctions = new ConcurrentHashMap<Abstraction, Abstraction>();
+		}
+	}
+
+	/**
+	 * Per-thread position in the synthetic program and a thread-local fact set
+	 */
+	@State(Scope.Thread)
+	public static class Worker {
+		int counter = 0;
+		Set<Abstraction> facts;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			facts = new HashSet<Abstraction>();
+		}
+	}
+
+	private static Abstraction derive(Program program, Worker worker) {
+		int i = worker.counter++;
+		Local local = program.locals[i % LOCAL_COUNT];
+		AccessPath ap = (i & 1) == 0 ? new AccessPath(local)
+				: new AccessPath(local, program.fields[(i >>> 1) % FIELD_COUNT]);
+		return program.source.deriveNewAbstraction(ap, program.stmts[i % STMT_COUNT]);
+	}
+
+	/**
+	 * Derives an abstraction and adds it to a thread-local set
+	 */
+	@Benchmark
+	public boolean deriveAndAdd(Program program, Worker worker) {
+		Abstraction abs = derive(program, worker);
+		worker.facts.add(abs);
+		return worker.facts.contains(abs);
+	}
+
+	/**
+	 * Derives an abstraction and compares it to an existing one
+	 */
+	@Benchmark
+	public boolean deriveAndCompare(Program program, Worker worker) {
+		Abstraction abs = derive(program, worker);
+		return abs.equals(program.known[worker.counter % KNOWN_COUNT]);
+	}
+
+	/**
+	 * Derives abstractions on several threads and registers them in a shared
+	 * map, like the solver threads do with their path edges
+	 */
+	@Benchmark
+	@Threads(4)
+	public Abstraction deriveAndRegisterShared(Program program, Worker worker) {
+		Abstraction abs = derive(program, worker);
+		Abstraction existing = program.jumpFunctions.putIfAbsent(abs, abs);
+		return existing == null ? abs : existing;
+	}
+
+	/**
+	 * Looks up abstractions that have already been hashed, i.e., the common
+	 * case when the solver checks for existing path edges
+	 */
+	@Benchmark
+	@Threads(4)
+	public boolean lookupKnown(Program program, Worker worker) {
+		Abstraction abs = program.known[worker.counter++ % KNOWN_COUNT];
+		return program.knownFacts.contains(abs);
+	}
+
+}
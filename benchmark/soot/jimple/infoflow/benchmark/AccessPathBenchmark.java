@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soot.Local;
+import soot.RefType;
+import soot.SootField;
+import soot.jimple.Jimple;
+import soot.jimple.infoflow.data.AccessPath;
+
+/**
+ * Microbenchmark for the construction and comparison of access paths
+ *
+ * @author Steven Arzt
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessPathBenchmark {
+
+	private static final int LOCAL_COUNT = 32;
+	private static final int FIELD_COUNT = 8;
+
+	private Local[] locals;
+	private SootField[] fields;
+	private AccessPath[] paths;
+	private int counter = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		RefType objType = RefType.v("java.lang.Object");
+		locals = new Local[LOCAL_COUNT];
+		for (int i = 0; i < LOCAL_COUNT; i++)
+			locals[i] = Jimple.v().newLocal("l" + i, objType);
+		fields = new SootField[FIELD_COUNT];
+		for (int i = 0; i < FIELD_COUNT; i++)
+			fields[i] = new SootField("f" + i, objType);
+
+		// Access paths of all lengths up to the default maximum
+		paths = new AccessPath[LOCAL_COUNT * FIELD_COUNT];
+		for (int i = 0; i < paths.length; i++) {
+			SootField[] apFields = new SootField[i % 4];
+			for (int j = 0; j < apFields.length; j++)
+				apFields[j] = fields[(i + j) % FIELD_COUNT];
+			paths[i] = new AccessPath(locals[i % LOCAL_COUNT], apFields);
+		}
+	}
+
+	private int next() {
+		return counter++ & Integer.MAX_VALUE;
+	}
+
+	@Benchmark
+	public AccessPath construct() {
+		int i = next();
+		return new AccessPath(locals[i % LOCAL_COUNT],
+				new SootField[] { fields[i % FIELD_COUNT], fields[(i + 1) % FIELD_COUNT] });
+	}
+
+	@Benchmark
+	public boolean entails() {
+		int i = next();
+		return paths[i % paths.length].entails(paths[(i * 7) % paths.length]);
+	}
+
+	@Benchmark
+	public AccessPath merge() {
+		int i = next();
+		return paths[i % paths.length].merge(paths[(i * 7) % paths.length]);
+	}
+
+	@Benchmark
+	public boolean equalsAndHashCode() {
+		int i = next();
+		AccessPath ap1 = paths[i % paths.length];
+		AccessPath ap2 = paths[(i * 7) % paths.length];
+		return ap1.hashCode() == ap2.hashCode() && ap1.equals(ap2);
+	}
+
+}
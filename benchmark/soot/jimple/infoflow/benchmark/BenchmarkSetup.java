@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import soot.MethodOrMethodContext;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.config.ConfigForTest;
+
+/**
+ * Common configuration for the benchmarks. The analyzed code is the test code
+ * of the JUnit tests, so the benchmarks measure the same scenarios the tests
+ * check for correctness.
+ *
+ * @author Steven Arzt
+ */
+final class BenchmarkSetup {
+
+	static final String SINK = "<soot.jimple.infoflow.test.android.ConnectionManager: void publish(java.lang.String)>";
+	static final String SINK_INT = "<soot.jimple.infoflow.test.android.ConnectionManager: void publish(int)>";
+
+	static final List<String> SOURCES = Arrays.asList(
+			"<soot.jimple.infoflow.test.android.AccountManager: java.lang.String getPassword()>",
+			"<soot.jimple.infoflow.test.android.AccountManager: java.lang.String[] getUserData(java.lang.String)>",
+			"<soot.jimple.infoflow.test.android.TelephonyManager: java.lang.String getDeviceId()>",
+			"<soot.jimple.infoflow.test.android.TelephonyManager: int getIMEI()>",
+			"<soot.jimple.infoflow.test.android.TelephonyManager: int getIMSI()>");
+	static final List<String> SINKS = Arrays.asList(SINK, SINK_INT);
+
+	private BenchmarkSetup() {
+	}
+
+	/**
+	 * Gets the class path containing the code to analyze. This is either
+	 * given by the system property "benchmark.classpath" or consists of the
+	 * Java runtime and the compiled test classes.
+	 * @return The class path containing the code to analyze
+	 * @throws IOException Thrown if the test classes cannot be located
+	 */
+	static String getClasspath() throws IOException {
+		String cp = System.getProperty("benchmark.classpath");
+		if (cp != null)
+			return cp;
+
+		final String sep = System.getProperty("path.separator");
+		File f = new File(".");
+		File testSrc1 = new File(f, "bin");
+		File testSrc2 = new File(f, "build" + File.separator + "classes");
+		return System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar"
+				+ sep + testSrc1.getCanonicalPath()
+				+ sep + testSrc2.getCanonicalPath();
+	}
+
+	/**
+	 * Creates a new data flow analysis with the same configuration as in the
+	 * JUnit tests
+	 * @return The new data flow analysis
+	 */
+	static Infoflow createInfoflow() {
+		Infoflow infoflow = new Infoflow();
+		infoflow.setSootConfig(new ConfigForTest());
+		return infoflow;
+	}
+
+	/**
+	 * Loads the code reachable from the given entry point into Soot
+	 * @param entryPoint The signature of the entry point method
+	 * @return The data flow analysis whose session holds the scene
+	 * @throws IOException Thrown if the test classes cannot be located
+	 */
+	static Infoflow loadScene(String entryPoint) throws IOException {
+		soot.G.reset();
+		Infoflow infoflow = createInfoflow();
+		infoflow.initializeSession(getClasspath(), entryPoint);
+		return infoflow;
+	}
+
+	/**
+	 * Gets all statements in the methods reachable in the current scene
+	 * @param callsOnly True if only statements containing method invocations
+	 * shall be returned
+	 * @return The statements in the reachable methods
+	 */
+	static List<Stmt> getReachableStatements(boolean callsOnly) {
+		List<Stmt> stmts = new ArrayList<Stmt>();
+		for (Iterator<MethodOrMethodContext> iter = Scene.v().getReachableMethods().listener();
+				iter.hasNext(); ) {
+			SootMethod m = iter.next().method();
+			if (m.hasActiveBody())
+				for (Unit u : m.getActiveBody().getUnits()) {
+					Stmt s = (Stmt) u;
+					if (!callsOnly || s.containsInvokeExpr())
+						stmts.add(s);
+				}
+		}
+		return stmts;
+	}
+
+}
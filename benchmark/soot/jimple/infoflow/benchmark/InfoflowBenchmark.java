@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults;
+
+/**
+ * End-to-end benchmark running the complete data flow analysis on the test
+ * code, including the construction of the call graph
+ *
+ * @author Steven Arzt
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class InfoflowBenchmark {
+
+	@Param({
+		"<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void linkedListIteratorTest()>"
+	})
+	public String entryPoint;
+
+	private String classpath;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		classpath = BenchmarkSetup.getClasspath();
+	}
+
+	@Setup(Level.Invocation)
+	public void resetSoot() {
+		soot.G.reset();
+	}
+
+	@Benchmark
+	public InfoflowResults computeInfoflow() {
+		Infoflow infoflow = BenchmarkSetup.createInfoflow();
+		infoflow.computeInfoflow(classpath, Collections.singletonList(entryPoint),
+				BenchmarkSetup.SOURCES, BenchmarkSetup.SINKS);
+		return infoflow.getResults();
+	}
+
+}
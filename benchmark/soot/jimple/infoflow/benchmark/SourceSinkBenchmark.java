@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.heros.InfoflowCFG;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+
+/**
+ * Microbenchmark for the source and sink checks of the
+ * {@link DefaultSourceSinkManager}, which are done for every statement the
+ * analysis visits
+ *
+ * @author Steven Arzt
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SourceSinkBenchmark {
+
+	private DefaultSourceSinkManager sourceSinkManager;
+	private InfoflowCFG icfg;
+	private List<Stmt> stmts;
+	private int counter = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSetup.loadScene("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		sourceSinkManager = new DefaultSourceSinkManager(BenchmarkSetup.SOURCES,
+				BenchmarkSetup.SINKS);
+		icfg = new InfoflowCFG();
+		stmts = BenchmarkSetup.getReachableStatements(false);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		soot.G.reset();
+	}
+
+	private Stmt next() {
+		return stmts.get((counter++ & Integer.MAX_VALUE) % stmts.size());
+	}
+
+	@Benchmark
+	public boolean isSource() {
+		return sourceSinkManager.isSource(next(), icfg);
+	}
+
+	@Benchmark
+	public boolean isSink() {
+		return sourceSinkManager.isSink(next(), icfg);
+	}
+
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soot.Value;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+
+/**
+ * Microbenchmark for the lookups in the {@link EasyTaintWrapper}. The queries
+ * are all calls in the list test code, each with a tainted argument or base
+ * object.
+ *
+ * @author Steven Arzt
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TaintWrapperBenchmark {
+
+	private EasyTaintWrapper wrapper;
+	private List<Stmt> callSites;
+	private List<AccessPath> taints;
+	private int counter = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSetup.loadScene("<soot.jimple.infoflow.test.ListTestCode: void linkedListIteratorTest()>");
+		wrapper = new EasyTaintWrapper(new File("EasyTaintWrapperSource.txt"));
+
+		callSites = new ArrayList<Stmt>();
+		taints = new ArrayList<AccessPath>();
+		for (Stmt stmt : BenchmarkSetup.getReachableStatements(true)) {
+			Value tainted = null;
+			if (stmt.getInvokeExpr() instanceof InstanceInvokeExpr)
+				tainted = ((InstanceInvokeExpr) stmt.getInvokeExpr()).getBase();
+			for (Value arg : stmt.getInvokeExpr().getArgs())
+				if (tainted == null && AccessPath.canContainValue(arg))
+					tainted = arg;
+			if (tainted != null) {
+				callSites.add(stmt);
+				taints.add(new AccessPath(tainted));
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		soot.G.reset();
+	}
+
+	@Benchmark
+	public Set<AccessPath> getTaintsForMethod() {
+		int i = (counter++ & Integer.MAX_VALUE) % callSites.size();
+		return wrapper.getTaintsForMethod(callSites.get(i), taints.get(i));
+	}
+
+}
@@ -13,8 +13,10 @@ package soot.jimple.infoflow;
 import java.util.List;
 
 import soot.Transform;
+import soot.jimple.infoflow.data.IFactSharingPool;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.summaries.MethodSummaryStore;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 /**
  * interface for the main infoflow class
@@ -45,6 +47,28 @@ public interface IInfoflow {
 		 */
 		PtsBased
 	}
+	
+	/**
+	 * Enumeration containing the strategies for scheduling the path edges of
+	 * the data flow solvers on the worker threads
+	 */
+	public enum SchedulingStrategy {
+		/**
+		 * All workers share a single queue and process the edges in the
+		 * order in which they were discovered
+		 */
+		Fifo,
+		/**
+		 * Every worker has its own queue and continues with the edges it has
+		 * discovered itself. Idle workers steal edges from the others.
+		 */
+		WorkStealing,
+		/**
+		 * Edges that complete method summaries or that are close to a sink
+		 * are processed first
+		 */
+		Priority
+	}
 
 	/**
 	 * Sets the taint wrapper for deciding on taint propagation through black-box
@@ -139,6 +163,53 @@ public interface IInfoflow {
 	 */
 	public void computeInfoflow(String path, String entryPoint, ISourceSinkManager sourcesSinks);
 
+	/**
+	 * Starts a new analysis session on a list of entry point methods. The Soot
+	 * scene, the callgraph and the interprocedural control flow graph are built
+	 * once and are then kept for all queries issued through
+	 * {@link #computeInfoflow(ISourceSinkManager)} until the session is closed
+	 * or a new analysis is started.
+	 * @param path the path to the main folder of the (unpacked) class files
+	 * @param entryPointCreator the entry point creator to use for generating the dummy
+	 * main method
+	 * @param entryPoints the entryPoints (string conforms to SootMethod representation)
+	 */
+	public void initializeSession(String path, IEntryPointCreator entryPointCreator,
+			List<String> entryPoints);
+
+	/**
+	 * Starts a new analysis session on a single method. The Soot scene, the
+	 * callgraph and the interprocedural control flow graph are built once and
+	 * are then kept for all queries issued through
+	 * {@link #computeInfoflow(ISourceSinkManager)} until the session is closed
+	 * or a new analysis is started.
+	 * @param path the path to the main folder of the (unpacked) class files
+	 * @param entryPoint the main method to analyze
+	 */
+	public void initializeSession(String path, String entryPoint);
+
+	/**
+	 * Computes the information flow on the program loaded by the current
+	 * analysis session. Only the solver state is created anew, so the taint
+	 * wrapper and the other analysis options may change between two queries.
+	 * @param sourcesSinks manager class for identifying sources and sinks in the source code
+	 */
+	public void computeInfoflow(ISourceSinkManager sourcesSinks);
+
+	/**
+	 * Computes the information flow on the program loaded by the current
+	 * analysis session. Only the solver state is created anew, so the taint
+	 * wrapper and the other analysis options may change between two queries.
+	 * @param sources list of source class+method (as string conforms to SootMethod representation)
+	 * @param sinks list of sink class+method (as string conforms to SootMethod representation)
+	 */
+	public void computeInfoflow(List<String> sources, List<String> sinks);
+
+	/**
+	 * Closes the current analysis session and releases the Soot scene
+	 */
+	public void closeSession();
+
 	/**
 	 * getResults returns the results found by the analysis
 	 * @return the results
@@ -188,6 +259,102 @@ public interface IInfoflow {
 	 * @param computeResultPaths True if paths shall be computed, otherwise false
 	 */
 	public void setComputeResultPaths(boolean computeResultPaths);
+	
+	/**
+	 * Sets the maximum number of statements on a reconstructed path between a
+	 * source and a sink. Longer paths are not reported.
+	 * @param maxPathLength The maximum number of statements on a path
+	 */
+	public void setMaxPathLength(int maxPathLength);
+	
+	/**
+	 * Sets the maximum number of paths that are reconstructed for each sink
+	 * once the analysis has finished. All other paths are reconstructed when
+	 * they are requested from the results for the first time.
+	 * @param maxPathsPerSink The maximum number of paths to reconstruct
+	 * eagerly for each sink
+	 */
+	public void setMaxPathsPerSink(int maxPathsPerSink);
+
+	/**
+	 * Sets whether the statements from which a sink can be reached shall be
+	 * computed before the data flow analysis is started. Taints are then only
+	 * propagated to these statements, and callees which cannot reach a sink
+	 * are skipped. This does not change the results, but the pre-analysis
+	 * only pays off if the sinks are confined to a small part of the program.
+	 * @param enableSinkReachability True if the sink reachability shall be
+	 * computed and used for pruning the analysis, otherwise false
+	 */
+	public void setEnableSinkReachability(boolean enableSinkReachability);
+
+	/**
+	 * Sets whether the data flow solvers shall process all pending path edges
+	 * with the same target statement in a single task. This only applies to
+	 * statements that are neither calls nor exits. It does not change the
+	 * results, but saves the scheduling overhead for the large number of
+	 * small intra-procedural edges.
+	 * @param enableEdgeBatching True if path edges shall be processed in
+	 * batches, otherwise false
+	 */
+	public void setEnableEdgeBatching(boolean enableEdgeBatching);
+
+	/**
+	 * Sets whether the flow-sensitive alias analysis shall share its
+	 * backward searches between all contexts in which the same heap object
+	 * gets tainted. Every search then only runs once, and its results are
+	 * replayed for all further contexts that request it.
+	 * @param enableAliasQueryCache True if alias searches shall be shared
+	 * between contexts, otherwise false
+	 */
+	public void setEnableAliasQueryCache(boolean enableAliasQueryCache);
+
+	/**
+	 * Sets whether the postdominators of all reachable methods shall be
+	 * computed in parallel before the data flow analysis is started. This
+	 * only has an effect if implicit flows are tracked, since they are the
+	 * only ones that need the postdominators.
+	 * @param precomputePostdominators True if the postdominators shall be
+	 * computed in advance, false if they shall be computed on demand
+	 */
+	public void setPrecomputePostdominators(boolean precomputePostdominators);
+
+	/**
+	 * Sets the store from which summaries of library methods shall be taken
+	 * instead of analyzing these methods. After the analysis, the summaries
+	 * of all library methods are written back to the store.
+	 * @param summaryStore The store for the method summaries, or null to
+	 * always analyze the library methods
+	 */
+	public void setMethodSummaryStore(MethodSummaryStore summaryStore);
+
+	/**
+	 * Sets the maximum wall-clock time for solving the data flow problem. If
+	 * the analysis takes longer, it is stopped and the results found so far
+	 * are returned as partial results. The reconstruction of the result paths
+	 * counts against the same time limit. For partial results, no paths are
+	 * reconstructed upfront, they are only computed on demand.
+	 * @param analysisTimeout The maximum time in milliseconds, or -1 for no
+	 * time limit
+	 */
+	public void setAnalysisTimeout(long analysisTimeout);
+
+	/**
+	 * Sets the maximum number of path edges the solvers may propagate. If
+	 * this number is exceeded, the analysis is stopped and the results found
+	 * so far are returned as partial results.
+	 * @param maxPropagatedEdges The maximum number of path edges, or -1 for
+	 * no limit
+	 */
+	public void setMaxPropagatedEdges(long maxPropagatedEdges);
+
+	/**
+	 * Sets the maximum heap usage while solving the data flow problem. If
+	 * more memory is in use, the analysis is stopped and the results found
+	 * so far are returned as partial results.
+	 * @param maxHeapUsage The maximum number of bytes in use on the heap, or
+	 * -1 for no limit
+	 */
+	public void setMaxHeapUsage(long maxHeapUsage);
 
 	/**
 	 * Sets whether a flow sensitive aliasing algorithm shall be used
@@ -214,6 +381,16 @@ public interface IInfoflow {
 	 * @param algorithm The aliasing algorithm to be used by the data flow tracker
 	 */
 	public void setAliasingAlgorithm(AliasingAlgorithm algorithm);
+	
+	/**
+	 * Sets the strategy for scheduling the path edges of the data flow
+	 * solvers on the worker threads. This does not change the results, but
+	 * the order in which they are found. In particular, the priority
+	 * strategy tends to find the first leak earlier, which pays off if the
+	 * analysis stops after the first flow.
+	 * @param strategy The strategy for scheduling the path edges
+	 */
+	public void setSchedulingStrategy(SchedulingStrategy strategy);
 
 	/**
 	 * sets the depth of the access path that are tracked
@@ -233,4 +410,14 @@ public interface IInfoflow {
 	 */
 	public void setMaxThreadNum(int threadNum);
 	
+	/**
+	 * Sets the pool to be used for sharing structurally equal access paths
+	 * and abstraction contents between taint abstractions. Sharing reduces the
+	 * memory consumption on large programs at the cost of a hash lookup per
+	 * newly created abstraction.
+	 * @param pool The pool to be used for sharing equal facts, or null to
+	 * disable sharing. The default is null.
+	 */
+	public void setFactSharingPool(IFactSharingPool pool);
+	
 }
@@ -23,7 +23,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -42,20 +47,31 @@ import soot.Unit;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.InfoflowResults.SinkInfo;
 import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.aliasing.AliasQueryCache;
 import soot.jimple.infoflow.aliasing.FlowSensitiveAliasStrategy;
 import soot.jimple.infoflow.aliasing.IAliasingStrategy;
 import soot.jimple.infoflow.aliasing.PtsBasedAliasStrategy;
 import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.IFactSharingPool;
 import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler;
+import soot.jimple.infoflow.heros.AnalysisBudget;
+import soot.jimple.infoflow.heros.BackwardsInfoflowCFG;
 import soot.jimple.infoflow.heros.IInfoflowCFG;
 import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.infoflow.heros.PriorityTaskQueue;
+import soot.jimple.infoflow.heros.SinkReachability;
+import soot.jimple.infoflow.heros.WorkStealingTaskQueue;
 import soot.jimple.infoflow.problems.BackwardsInfoflowProblem;
 import soot.jimple.infoflow.problems.InfoflowProblem;
 import soot.jimple.infoflow.source.DefaultSourceSinkManager;
 import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.summaries.MethodSummaryStore;
+import soot.jimple.infoflow.summaries.SummaryTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.CachingTaintWrapper;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.toolkits.callgraph.ReachableMethods;
@@ -89,13 +105,31 @@ public class Infoflow implements IInfoflow {
 	private boolean inspectSinks = false;
 	
 	private int maxThreadNum = -1;
+	private int maxPathLength = 5000;
+	private int maxPathsPerSink = 10;
+	private boolean enableSinkReachability = false;
+	private boolean enableEdgeBatching = false;
+	private boolean enableAliasQueryCache = false;
+	private boolean precomputePostdominators = false;
+	private MethodSummaryStore summaryStore = null;
+	private int batchedEdges = 0;
+	private int edgeBatches = 0;
+	private int aliasQueryReuses = 0;
+	private long analysisTimeout = -1;
+	private long maxPropagatedEdges = -1;
+	private long maxHeapUsage = -1;
+	
+	private IFactSharingPool factSharingPool = null;
 	
 	private CallgraphAlgorithm callgraphAlgorithm = CallgraphAlgorithm.AutomaticSelection;
 	private AliasingAlgorithm aliasingAlgorithm = AliasingAlgorithm.FlowSensitive;
+	private SchedulingStrategy schedulingStrategy = SchedulingStrategy.Fifo;
 
     private BiDirICFGFactory icfgFactory = new DefaultBiDiICFGFactory();
     private List<Transform> preProcessors = Collections.emptyList();
     private IInfoflowCFG iCfg;
+    private BackwardsInfoflowCFG backwardsICfg;
+    private Set<String> sessionSeeds = null;
     
     private Set<ResultsAvailableHandler> onResultsAvailable = new HashSet<ResultsAvailableHandler>();
     private Set<TaintPropagationHandler> taintPropagationHandlers = new HashSet<TaintPropagationHandler>();
@@ -158,6 +192,56 @@ public class Infoflow implements IInfoflow {
 		this.computeResultPaths = computeResultPaths;
 	}
 
+	@Override
+	public void setMaxPathLength(int maxPathLength) {
+		this.maxPathLength = maxPathLength;
+	}
+
+	@Override
+	public void setMaxPathsPerSink(int maxPathsPerSink) {
+		this.maxPathsPerSink = maxPathsPerSink;
+	}
+
+	@Override
+	public void setAnalysisTimeout(long analysisTimeout) {
+		this.analysisTimeout = analysisTimeout;
+	}
+
+	@Override
+	public void setMaxPropagatedEdges(long maxPropagatedEdges) {
+		this.maxPropagatedEdges = maxPropagatedEdges;
+	}
+
+	@Override
+	public void setMaxHeapUsage(long maxHeapUsage) {
+		this.maxHeapUsage = maxHeapUsage;
+	}
+
+	@Override
+	public void setMethodSummaryStore(MethodSummaryStore summaryStore) {
+		this.summaryStore = summaryStore;
+	}
+
+	@Override
+	public void setEnableSinkReachability(boolean enableSinkReachability) {
+		this.enableSinkReachability = enableSinkReachability;
+	}
+
+	@Override
+	public void setEnableEdgeBatching(boolean enableEdgeBatching) {
+		this.enableEdgeBatching = enableEdgeBatching;
+	}
+
+	@Override
+	public void setEnableAliasQueryCache(boolean enableAliasQueryCache) {
+		this.enableAliasQueryCache = enableAliasQueryCache;
+	}
+
+	@Override
+	public void setPrecomputePostdominators(boolean precomputePostdominators) {
+		this.precomputePostdominators = precomputePostdominators;
+	}
+
 	@Override
 	public void setFlowSensitiveAliasing(boolean flowSensitiveAliasing) {
 		this.flowSensitiveAliasing = flowSensitiveAliasing;
@@ -191,6 +275,11 @@ public class Infoflow implements IInfoflow {
     public void setAliasingAlgorithm(AliasingAlgorithm algorithm) {
     	this.aliasingAlgorithm = algorithm;
     }
+    
+    @Override
+    public void setSchedulingStrategy(SchedulingStrategy strategy) {
+    	this.schedulingStrategy = strategy;
+    }
 
     @Override
 	public void computeInfoflow(String path, IEntryPointCreator entryPointCreator,
@@ -226,13 +315,17 @@ public class Infoflow implements IInfoflow {
 	 * @param classes The set of classes that shall be checked for data flow
 	 * analysis seeds. All sources in these classes are used as seeds. If a
 	 * non-empty extra seed is given, this one is used too.
-	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param sourcesSinks The manager object for identifying sources and sinks.
+	 * If this parameter is null, only the scene is prepared for later queries.
 	 * @param extraSeed An optional extra seed, can be empty.
 	 */
 	private void initializeSoot(String path, Set<String> classes, ISourceSinkManager sourcesSinks, String extraSeed) {
 		// reset Soot:
 		logger.info("Resetting Soot...");
 		soot.G.reset();
+		iCfg = null;
+		backwardsICfg = null;
+		sessionSeeds = null;
 		
 		// add SceneTransformer which calculates and prints infoflow
 		Set<String> seeds = Collections.emptySet();
@@ -313,7 +406,29 @@ public class Infoflow implements IInfoflow {
 			logger.error("Sources are empty!");
 			return;
 		}
+		buildScene(path, entryPointCreator, entryPoints, sourcesSinks);
+	}
 	
+	@Override
+	public void initializeSession(String path, IEntryPointCreator entryPointCreator,
+			List<String> entryPoints) {
+		results = null;
+		buildScene(path, entryPointCreator, entryPoints, null);
+	}
+	
+	/**
+	 * Builds the Soot scene, the callgraph and the interprocedural control flow
+	 * graph for the given entry points
+	 * @param path The Soot classpath
+	 * @param entryPointCreator the entry point creator to use for generating
+	 * the dummy main method
+	 * @param entryPoints the entryPoints (string conforms to SootMethod
+	 * representation)
+	 * @param sourcesSinks The manager object for identifying sources and sinks.
+	 * If this parameter is null, the data flow analysis is not run.
+	 */
+	private void buildScene(String path, IEntryPointCreator entryPointCreator,
+			List<String> entryPoints, ISourceSinkManager sourcesSinks) {
 		initializeSoot(path,
 				SootMethodRepresentationParser.v().parseClassNames(entryPoints, false).keySet(),
 				sourcesSinks);
@@ -334,7 +449,24 @@ public class Infoflow implements IInfoflow {
 			logger.error("Sources are empty!");
 			return;
 		}
-
+		buildScene(path, entryPoint, sourcesSinks);
+	}
+	
+	@Override
+	public void initializeSession(String path, String entryPoint) {
+		results = null;
+		buildScene(path, entryPoint, null);
+	}
+	
+	/**
+	 * Builds the Soot scene, the callgraph and the interprocedural control flow
+	 * graph for a single entry point method
+	 * @param path The Soot classpath
+	 * @param entryPoint The main method to analyze
+	 * @param sourcesSinks The manager object for identifying sources and sinks.
+	 * If this parameter is null, the data flow analysis is not run.
+	 */
+	private void buildScene(String path, String entryPoint, ISourceSinkManager sourcesSinks) {
 		// parse classNames as String and methodNames as string in soot representation
 		HashMap<String, List<String>> classes = SootMethodRepresentationParser.v().parseClassNames
 						(Collections.singletonList(entryPoint), false);
@@ -374,210 +506,457 @@ public class Infoflow implements IInfoflow {
 		Transform transform = new Transform("wjtp.ifds", new SceneTransformer() {
 			protected void internalTransform(String phaseName, @SuppressWarnings("rawtypes") Map options) {
                 logger.info("Callgraph has {} edges", Scene.v().getCallGraph().size());
+                long beforeICfg = System.nanoTime();
                 iCfg = icfgFactory.buildBiDirICFG();
+                logger.info("Interprocedural CFG built in {} ms", (System.nanoTime() - beforeICfg) / 1000000);
+                sessionSeeds = additionalSeeds;
                 
-                int numThreads = Runtime.getRuntime().availableProcessors();
-
-				CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor
-						(maxThreadNum == -1 ? numThreads : Math.min(maxThreadNum, numThreads),
-						Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
-						new LinkedBlockingQueue<Runnable>());
-
-				BackwardsInfoflowProblem backProblem;
-				InfoflowSolver backSolver;
-				final IAliasingStrategy aliasingStrategy;
-				switch (aliasingAlgorithm) {
-					case FlowSensitive:
-						backProblem = new BackwardsInfoflowProblem();
-						backSolver = new InfoflowSolver(backProblem, executor);
-						aliasingStrategy = new FlowSensitiveAliasStrategy(iCfg, backSolver);
-						break;
-					case PtsBased:
-						backProblem = null;
-						backSolver = null;
-						aliasingStrategy = new PtsBasedAliasStrategy(iCfg);
-						break;
-					default:
-						throw new RuntimeException("Unsupported aliasing algorithm");
-				}
+                // Without a source/sink manager, we only prepare the scene
+                // for the queries that are issued later on
+                if (sourcesSinks != null)
+                	runAnalysis(sourcesSinks, additionalSeeds);
+			}
+		});
 
-				InfoflowProblem forwardProblem  = new InfoflowProblem(iCfg, sourcesSinks, aliasingStrategy);
-				
-				// We have to look through the complete program to find sources
-				// which are then taken as seeds.
-				int sinkCount = 0;
-                logger.info("Looking for sources and sinks...");
-
-				List<MethodOrMethodContext> eps = new ArrayList<MethodOrMethodContext>(Scene.v().getEntryPoints());
-				ReachableMethods reachableMethods = new ReachableMethods(Scene.v().getCallGraph(), eps.iterator(), null);
-				reachableMethods.update();
-				Map<String, String> classes = new HashMap<String, String>(10000);
-				for(Iterator<MethodOrMethodContext> iter = reachableMethods.listener(); iter.hasNext(); ) {
-					SootMethod m = iter.next().method();
-					if (m.hasActiveBody()) {
-						// In Debug mode, we collect the Jimple bodies for
-						// writing them to disk later
-						if (debug)
-							if (classes.containsKey(m.getDeclaringClass().getName()))
-								classes.put(m.getDeclaringClass().getName(), classes.get(m.getDeclaringClass().getName())
-										+ m.getActiveBody().toString());
-							else
-								classes.put(m.getDeclaringClass().getName(), m.getActiveBody().toString());
-						
-						// Look for a source in the method. Also look for sinks. If we
-						// have no sink in the program, we don't need to perform any
-						// analysis
-						PatchingChain<Unit> units = m.getActiveBody().getUnits();
-						for (Unit u : units) {
-							Stmt s = (Stmt) u;
-							if (sourcesSinks.isSource(s, iCfg)) {
-								forwardProblem.addInitialSeeds(u, Collections.singleton(forwardProblem.zeroValue()));
-								logger.debug("Source found: {}", u);
-							}
-							if (sourcesSinks.isSink(s, iCfg)) {
-                                logger.debug("Sink found: {}", u);
-								sinkCount++;
-							}
-						}
-						
-					}
-				}
-				
-				// We optionally also allow additional seeds to be specified
-				if (additionalSeeds != null)
-					for (String meth : additionalSeeds) {
-						SootMethod m = Scene.v().getMethod(meth);
-						if (!m.hasActiveBody()) {
-							logger.warn("Seed method {} has no active body", m);
-							continue;
-						}
-						forwardProblem.addInitialSeeds(m.getActiveBody().getUnits().getFirst(),
-								Collections.singleton(forwardProblem.zeroValue()));
-					}
+        for (Transform tr : preProcessors){
+            PackManager.v().getPack("wjtp").add(tr);
+        }
+		PackManager.v().getPack("wjtp").add(transform);
+	}
+	
+	/**
+	 * Runs the data flow analysis on the current Soot scene. The call graph
+	 * and the interprocedural control flow graph must already have been built.
+	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param additionalSeeds Signatures of additional methods whose first
+	 * statement shall be used as a seed, may be null
+	 */
+	private void runAnalysis(ISourceSinkManager sourcesSinks, Set<String> additionalSeeds) {
+		batchedEdges = 0;
+		edgeBatches = 0;
+		aliasQueryReuses = 0;
+		
+		if (factSharingPool != null)
+			factSharingPool.clear();
+		Abstraction.setFactSharingPool(factSharingPool);
+		
+		int numThreads = Runtime.getRuntime().availableProcessors();
 
-				// In Debug mode, we write the Jimple files to disk
-				if (debug){
-					File dir = new File("JimpleFiles");
-					if(!dir.exists()){
-						dir.mkdir();
-					}
-					for (Entry<String, String> entry : classes.entrySet()) {
-						try {
-							stringToTextFile(new File(".").getAbsolutePath() + System.getProperty("file.separator") +"JimpleFiles"+ System.getProperty("file.separator") + entry.getKey() + ".jimple", entry.getValue());
-						} catch (IOException e) {
-							logger.error("Could not write jimple file: {}", entry.getKey() + ".jimple", e);
-						}
-					}
-				}
+		CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor
+				(maxThreadNum == -1 ? numThreads : Math.min(maxThreadNum, numThreads),
+				Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+				createTaskQueue());
 
-				if (!forwardProblem.hasInitialSeeds() || sinkCount == 0){
-					logger.error("No sources or sinks found, aborting analysis");
-					return;
-				}
+		BackwardsInfoflowProblem backProblem;
+		InfoflowSolver backSolver;
+		AliasQueryCache aliasQueries = null;
+		final IAliasingStrategy aliasingStrategy;
+		switch (aliasingAlgorithm) {
+			case FlowSensitive:
+				// The backwards graph only depends on the scene, so we can
+				// keep it for further queries in the same session
+				if (backwardsICfg == null)
+					backwardsICfg = new BackwardsInfoflowCFG();
+				backProblem = new BackwardsInfoflowProblem(backwardsICfg);
+				backSolver = new InfoflowSolver(backProblem, executor);
+				if (enableAliasQueryCache)
+					aliasQueries = new AliasQueryCache();
+				backProblem.setAliasQueryCache(aliasQueries);
+				aliasingStrategy = new FlowSensitiveAliasStrategy(iCfg, backSolver, aliasQueries);
+				break;
+			case PtsBased:
+				backProblem = null;
+				backSolver = null;
+				aliasingStrategy = new PtsBasedAliasStrategy(iCfg);
+				break;
+			default:
+				throw new RuntimeException("Unsupported aliasing algorithm");
+		}
 
-				logger.info("Source lookup done, found {} sources and {} sinks.", forwardProblem.getInitialSeeds().size(),
-						sinkCount);
-				
-				InfoflowSolver forwardSolver = new InfoflowSolver(forwardProblem, executor);
-				aliasingStrategy.setForwardSolver(forwardSolver);
-				
-				forwardProblem.setInspectSources(inspectSources);
-				forwardProblem.setInspectSinks(inspectSinks);
-				forwardProblem.setEnableImplicitFlows(enableImplicitFlows);
-				forwardProblem.setEnableStaticFieldTracking(enableStaticFields);
-				forwardProblem.setEnableExceptionTracking(enableExceptions);
-				for (TaintPropagationHandler tp : taintPropagationHandlers)
-					forwardProblem.addTaintPropagationHandler(tp);
-				forwardProblem.setFlowSensitiveAliasing(flowSensitiveAliasing);
-				forwardProblem.setTaintWrapper(taintWrapper);
-				forwardProblem.setStopAfterFirstFlow(stopAfterFirstFlow);
-				
-				if (backProblem != null) {
-					backProblem.setForwardSolver((InfoflowSolver) forwardSolver);
-					backProblem.setTaintWrapper(taintWrapper);
-					backProblem.setZeroValue(forwardProblem.createZeroValue());
-					backProblem.setEnableStaticFieldTracking(enableStaticFields);
-					backProblem.setEnableExceptionTracking(enableExceptions);
-					for (TaintPropagationHandler tp : taintPropagationHandlers)
-						backProblem.addTaintPropagationHandler(tp);
-					backProblem.setFlowSensitiveAliasing(flowSensitiveAliasing);
-					backProblem.setTaintWrapper(taintWrapper);
-				}
-				
-				if (!enableStaticFields)
-					logger.warn("Static field tracking is disabled, results may be incomplete");
-				if (!flowSensitiveAliasing)
-					logger.warn("Using flow-insensitive alias tracking, results may be imprecise");
+		InfoflowProblem forwardProblem  = new InfoflowProblem(iCfg, sourcesSinks, aliasingStrategy);
+		
+		// We have to look through the complete program to find sources
+		// which are then taken as seeds.
+		logger.info("Looking for sources and sinks...");
+		long beforeSeedScan = System.nanoTime();
 
-				forwardSolver.solve();
+		List<MethodOrMethodContext> eps = new ArrayList<MethodOrMethodContext>(Scene.v().getEntryPoints());
+		ReachableMethods reachableMethods = new ReachableMethods(Scene.v().getCallGraph(), eps.iterator(), null);
+		reachableMethods.update();
+		List<SootMethod> methods = new ArrayList<SootMethod>();
+		Map<String, String> classes = new HashMap<String, String>(10000);
+		for(Iterator<MethodOrMethodContext> iter = reachableMethods.listener(); iter.hasNext(); ) {
+			SootMethod m = iter.next().method();
+			if (m.hasActiveBody()) {
+				methods.add(m);
 				
-				// Not really nice, but sometimes Heros returns before all
-				// executor tasks are actually done. This way, we give it a
-				// chance to terminate gracefully before moving on.
-				int terminateTries = 0;
-				while (terminateTries < 10) {
-					if (executor.getActiveCount() != 0 || !executor.isTerminated()) {
-						terminateTries++;
-						try {
-							Thread.sleep(500);
-						}
-						catch (InterruptedException e) {
-							logger.error("Could not wait for executor termination", e);
-						}
-					}
+				// In Debug mode, we collect the Jimple bodies for
+				// writing them to disk later
+				if (debug)
+					if (classes.containsKey(m.getDeclaringClass().getName()))
+						classes.put(m.getDeclaringClass().getName(), classes.get(m.getDeclaringClass().getName())
+								+ m.getActiveBody().toString());
 					else
-						break;
+						classes.put(m.getDeclaringClass().getName(), m.getActiveBody().toString());
+			}
+		}
+		
+		// Look for sources and sinks in the reachable methods. If we have no
+		// sink in the program, we don't need to perform any analysis
+		Queue<Unit> sources = new ConcurrentLinkedQueue<Unit>();
+		Queue<Unit> sinks = new ConcurrentLinkedQueue<Unit>();
+		scanForSourcesAndSinks(methods, sourcesSinks, executor, sources, sinks);
+		int sinkCount = sinks.size();
+		logger.info("Scanned {} methods for sources and sinks in {} ms", methods.size(),
+				(System.nanoTime() - beforeSeedScan) / 1000000);
+		
+		// If requested, we find out which statements can reach a sink at all
+		// and do not bother with taints anywhere else. The priority scheduler
+		// also needs the distances to the sinks.
+		SinkReachability sinkReachability = null;
+		if (enableSinkReachability || schedulingStrategy == SchedulingStrategy.Priority) {
+			long beforeReachability = System.nanoTime();
+			sinkReachability = new SinkReachability(iCfg, sinks);
+			logger.info("{} of {} statements can reach a sink, computed in {} ms",
+					sinkReachability.getSinkReachingUnitCount(), iCfg.getUnitCount(),
+					(System.nanoTime() - beforeReachability) / 1000000);
+		}
+		if (enableSinkReachability)
+			forwardProblem.setSinkReachability(sinkReachability);
+		
+		int prunedSources = 0;
+		for (Unit u : sources)
+			if (!enableSinkReachability || sinkReachability.canReachSink(u))
+				forwardProblem.addInitialSeeds(u, Collections.singleton(forwardProblem.zeroValue()));
+			else
+				prunedSources++;
+		if (prunedSources > 0)
+			logger.info("Skipped {} sources from which no sink can be reached", prunedSources);
+		
+		// We optionally also allow additional seeds to be specified
+		if (additionalSeeds != null)
+			for (String meth : additionalSeeds) {
+				SootMethod m = Scene.v().getMethod(meth);
+				if (!m.hasActiveBody()) {
+					logger.warn("Seed method {} has no active body", m);
+					continue;
 				}
-				if (executor.getActiveCount() != 0 || !executor.isTerminated())
-					logger.error("Executor did not terminate gracefully");
+				forwardProblem.addInitialSeeds(m.getActiveBody().getUnits().getFirst(),
+						Collections.singleton(forwardProblem.zeroValue()));
+			}
 
-				// Print taint wrapper statistics
-				if (taintWrapper != null) {
-					logger.info("Taint wrapper hits: " + taintWrapper.getWrapperHits());
-					logger.info("Taint wrapper misses: " + taintWrapper.getWrapperMisses());
+		// In Debug mode, we write the Jimple files to disk
+		if (debug){
+			File dir = new File("JimpleFiles");
+			if(!dir.exists()){
+				dir.mkdir();
+			}
+			for (Entry<String, String> entry : classes.entrySet()) {
+				try {
+					stringToTextFile(new File(".").getAbsolutePath() + System.getProperty("file.separator") +"JimpleFiles"+ System.getProperty("file.separator") + entry.getKey() + ".jimple", entry.getValue());
+				} catch (IOException e) {
+					logger.error("Could not write jimple file: {}", entry.getKey() + ".jimple", e);
 				}
-				
-				logger.info("IFDS problem solved, processing results...");
-				
-				// Force a cleanup. Everything we need is reachable through the
-				// results set, the other abstractions can be killed now.
-				forwardSolver.cleanup();
-				if (backSolver != null) {
-					backSolver.cleanup();
-					backSolver = null;
+			}
+		}
+
+		if (!forwardProblem.hasInitialSeeds() || sinkCount == 0){
+			logger.error("No sources or sinks found, aborting analysis");
+			
+			// The scan has already started the worker threads
+			executor.shutdownNow();
+			return;
+		}
+
+		logger.info("Source lookup done, found {} sources and {} sinks.", forwardProblem.getInitialSeeds().size(),
+				sinkCount);
+		
+		// Implicit flows need the postdominators of all conditionals. If
+		// requested, we compute them for all methods in parallel upfront.
+		// This is only worth it if there is something to analyze.
+		if (enableImplicitFlows && precomputePostdominators) {
+			long beforePostdominators = System.nanoTime();
+			try {
+				iCfg.precomputePostdominators(methods, executor);
+			}
+			catch (RuntimeException e) {
+				// Do not leave the worker threads of the scan behind
+				executor.shutdownNow();
+				throw e;
+			}
+			logger.info("Computed postdominators for {} methods in {} ms", methods.size(),
+					(System.nanoTime() - beforePostdominators) / 1000000);
+		}
+		
+		// Library methods for which we already have summaries from earlier
+		// runs are not analyzed again
+		ITaintPropagationWrapper wrapper = taintWrapper;
+		if (summaryStore != null) {
+			List<Unit> sourcesAndSinks = new ArrayList<Unit>(sources);
+			sourcesAndSinks.addAll(sinks);
+			summaryStore.initialize(iCfg, sourcesAndSinks, computeConfigurationHash());
+			wrapper = new SummaryTaintWrapper(summaryStore, taintWrapper);
+		}
+		
+		InfoflowSolver forwardSolver = new InfoflowSolver(forwardProblem, executor);
+		aliasingStrategy.setForwardSolver(forwardSolver);
+		if (schedulingStrategy == SchedulingStrategy.Priority)
+			forwardSolver.setEdgePriorities(sinkReachability);
+		forwardSolver.setEnableEdgeBatching(enableEdgeBatching);
+		if (backSolver != null) {
+			backSolver.setEnableEdgeBatching(enableEdgeBatching);
+		}
+		
+		// Both solvers share the same budget
+		AnalysisBudget budget = null;
+		if (analysisTimeout >= 0 || maxPropagatedEdges >= 0 || maxHeapUsage >= 0) {
+			budget = new AnalysisBudget(analysisTimeout, maxPropagatedEdges, maxHeapUsage);
+			forwardSolver.setBudget(budget);
+			if (backSolver != null)
+				backSolver.setBudget(budget);
+		}
+		
+		forwardProblem.setInspectSources(inspectSources);
+		forwardProblem.setInspectSinks(inspectSinks);
+		forwardProblem.setEnableImplicitFlows(enableImplicitFlows);
+		forwardProblem.setEnableStaticFieldTracking(enableStaticFields);
+		forwardProblem.setEnableExceptionTracking(enableExceptions);
+		for (TaintPropagationHandler tp : taintPropagationHandlers)
+			forwardProblem.addTaintPropagationHandler(tp);
+		forwardProblem.setFlowSensitiveAliasing(flowSensitiveAliasing);
+		forwardProblem.setTaintWrapper(wrapper);
+		forwardProblem.setStopAfterFirstFlow(stopAfterFirstFlow);
+		
+		if (backProblem != null) {
+			backProblem.setForwardSolver((InfoflowSolver) forwardSolver);
+			backProblem.setTaintWrapper(wrapper);
+			backProblem.setZeroValue(forwardProblem.createZeroValue());
+			backProblem.setEnableStaticFieldTracking(enableStaticFields);
+			backProblem.setEnableExceptionTracking(enableExceptions);
+			for (TaintPropagationHandler tp : taintPropagationHandlers)
+				backProblem.addTaintPropagationHandler(tp);
+			backProblem.setFlowSensitiveAliasing(flowSensitiveAliasing);
+			backProblem.setTaintWrapper(wrapper);
+		}
+		
+		if (!enableStaticFields)
+			logger.warn("Static field tracking is disabled, results may be incomplete");
+		if (!flowSensitiveAliasing)
+			logger.warn("Using flow-insensitive alias tracking, results may be imprecise");
+
+		long beforeSolve = System.nanoTime();
+		if (budget != null)
+			budget.start();
+		forwardSolver.solve();
+		
+		// Heros only waits for the tasks it knows about. Make sure
+		// that both solvers are quiescent and the worker threads are
+		// gone before we touch the results.
+		try {
+			if (!forwardSolver.awaitTermination(30, TimeUnit.SECONDS))
+				logger.error("Executor did not terminate gracefully");
+		}
+		catch (InterruptedException e) {
+			logger.error("Could not wait for executor termination", e);
+		}
+
+		batchedEdges = forwardSolver.getBatchedEdgeCount()
+				+ (backSolver == null ? 0 : backSolver.getBatchedEdgeCount());
+		edgeBatches = forwardSolver.getBatchCount()
+				+ (backSolver == null ? 0 : backSolver.getBatchCount());
+		if (enableEdgeBatching)
+			logger.info("Processed " + batchedEdges + " path edges in " + edgeBatches + " batches");
+		if (aliasQueries != null) {
+			aliasQueryReuses = aliasQueries.getReuseCount();
+			logger.info("Started " + aliasQueries.size() + " alias searches, reused them "
+					+ aliasQueryReuses + " times");
+		}
+
+		// Print taint wrapper statistics
+		if (taintWrapper != null) {
+			logger.info("Taint wrapper hits: " + taintWrapper.getWrapperHits());
+			logger.info("Taint wrapper misses: " + taintWrapper.getWrapperMisses());
+			if (taintWrapper instanceof CachingTaintWrapper)
+				logger.info("Taint wrapper cache hit rate: "
+						+ ((CachingTaintWrapper) taintWrapper).getCacheHitRate());
+		}
+		
+		logger.info("IFDS problem solved in {} ms, processing results...",
+				(System.nanoTime() - beforeSolve) / 1000000);
+		
+		// Store the summaries of the library methods for later runs. If the
+		// analysis was pruned, the end summaries may be incomplete.
+		if (summaryStore != null) {
+			logger.info("Method summary hits: " + summaryStore.getSummaryHits());
+			logger.info("Method summary misses: " + summaryStore.getSummaryMisses());
+			if (enableSinkReachability || stopAfterFirstFlow
+					|| (budget != null && budget.isExhausted()))
+				logger.info("Analysis was pruned, not recording method summaries");
+			else {
+				logger.info("Recorded {} method summaries", summaryStore.recordSummaries(forwardSolver));
+				try {
+					summaryStore.save();
 				}
-				forwardSolver = null;
-				Runtime.getRuntime().gc();
-				
-				results = forwardProblem.getResults(computeResultPaths);
+				catch (IOException e) {
+					logger.error("Could not save method summaries", e);
+				}
+			}
+		}
+		
+		// Force a cleanup. Everything we need is reachable through the
+		// results set, the other abstractions can be killed now.
+		forwardSolver.cleanup();
+		if (backSolver != null) {
+			backSolver.cleanup();
+			backSolver = null;
+		}
+		forwardSolver = null;
+		
+		results = forwardProblem.getResults(computeResultPaths);
+		results.setMaxPathLength(maxPathLength);
+		if (budget != null && budget.isExhausted()) {
+			logger.warn("Analysis stopped after {} edges because it used {}, results are partial",
+					budget.getEdgeCount(), budget.getExhaustedReason());
+			results.setPartial(true);
+		}
+		
+		// Path reconstruction counts against the time limit of the budget.
+		// If the budget is already exhausted, we leave the paths to be
+		// computed on demand.
+		if (computeResultPaths) {
+			if (results.isPartial())
+				logger.info("Skipping path reconstruction for partial results");
+			else {
+				logger.info("Reconstructing paths...");
+				long beforePaths = System.nanoTime();
+				results.computePaths(maxPathsPerSink, maxThreadNum,
+						budget == null ? -1 : budget.getRemainingTime());
+				logger.info("Path reconstruction done in {} ms.", (System.nanoTime() - beforePaths) / 1000000);
+			}
+		}
+		
+		// The pool is no longer needed once the solvers are gone
+		if (factSharingPool != null) {
+			logger.info("Fact sharing pool hits: " + factSharingPool.getHits());
+			logger.info("Fact sharing pool misses: " + factSharingPool.getMisses());
+			factSharingPool.clear();
+			Abstraction.setFactSharingPool(null);
+		}
+		
+		if (results.getResults().isEmpty())
+			logger.warn("No results found.");
+		else for (Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet()) {
+			logger.info("The sink {} in method {} was called with values from the following sources:",
+		            entry.getKey(), iCfg.getMethodOf(entry.getKey().getContext()).getSignature() );
+			for (SourceInfo source : entry.getValue()) {
+				logger.info("- {} in method {}",source, iCfg.getMethodOf(source.getContext()).getSignature());
+				// Only log the paths we have already reconstructed
+				List<Stmt> path = source.getComputedPath();
+				if (path != null && !path.isEmpty()) {
+					logger.info("\ton Path: ");
+					for (Unit p : path) {
+						logger.info("\t\t -> " + p);
+					}
+				}
+			}
+		}
+		
+		for (ResultsAvailableHandler handler : onResultsAvailable)
+			handler.onResultsAvailable(iCfg, results);
+	}
+
+	/**
+	 * Creates the queue from which the worker threads take the path edges
+	 * according to the configured scheduling strategy
+	 * @return The queue for the tasks of the data flow solvers
+	 */
+	private BlockingQueue<Runnable> createTaskQueue() {
+		switch (schedulingStrategy) {
+			case Fifo:
+				return new LinkedBlockingQueue<Runnable>();
+			case WorkStealing:
+				return new WorkStealingTaskQueue();
+			case Priority:
+				return new PriorityTaskQueue();
+			default:
+				throw new RuntimeException("Unsupported scheduling strategy");
+		}
+	}
+
+	/**
+	 * Computes a hash over all options that influence the data flows the
+	 * solver computes for a single method
+	 * @return The hash of the current analysis configuration
+	 */
+	private long computeConfigurationHash() {
+		String config = accessPathLength
+				+ ";" + enableImplicitFlows
+				+ ";" + enableStaticFields
+				+ ";" + enableExceptions
+				+ ";" + flowSensitiveAliasing
+				+ ";" + aliasingAlgorithm
+				+ ";" + (taintWrapper == null ? "" : taintWrapper.getConfigurationHash());
+		return MethodSummaryStore.hashString(config);
+	}
+
+	/**
+	 * Scans the given methods for sources and sinks. The methods are split
+	 * into partitions which are processed concurrently on the given executor,
+	 * so the source/sink manager must be safe to be queried from multiple
+	 * threads. If the scan fails, the executor is shut down.
+	 * @param methods The methods to scan. All of these methods must have an
+	 * active body.
+	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param executor The executor on which to run the scan
+	 * @param sources The queue to which all source statements are added
+	 * @param sinks The queue to which all sink statements are added
+	 */
+	private void scanForSourcesAndSinks(List<SootMethod> methods,
+			final ISourceSinkManager sourcesSinks, CountingThreadPoolExecutor executor,
+			final Queue<Unit> sources, final Queue<Unit> sinks) {
+		// Create a few more partitions than we have threads so that a
+		// handful of large methods does not stall the whole scan
+		int numPartitions = Math.max(1, Math.min(methods.size(), executor.getCorePoolSize() * 4));
+		int partitionSize = (methods.size() + numPartitions - 1) / numPartitions;
+		
+		List<Future<?>> futures = new ArrayList<Future<?>>(numPartitions);
+		for (int i = 0; i < methods.size(); i += partitionSize) {
+			final List<SootMethod> partition = methods.subList(i, Math.min(i + partitionSize, methods.size()));
+			futures.add(executor.submit(new Runnable() {
 				
-				if (results.getResults().isEmpty())
-					logger.warn("No results found.");
-				else for (Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet()) {
-					logger.info("The sink {} in method {} was called with values from the following sources:",
-                            entry.getKey(), iCfg.getMethodOf(entry.getKey().getContext()).getSignature() );
-					for (SourceInfo source : entry.getValue()) {
-						logger.info("- {} in method {}",source, iCfg.getMethodOf(source.getContext()).getSignature());
-						if (source.getPath() != null && !source.getPath().isEmpty()) {
-							logger.info("\ton Path: ");
-							for (Unit p : source.getPath()) {
-								logger.info("\t\t -> " + p);
+				@Override
+				public void run() {
+					for (SootMethod m : partition) {
+						PatchingChain<Unit> units = m.getActiveBody().getUnits();
+						for (Unit u : units) {
+							Stmt s = (Stmt) u;
+							if (sourcesSinks.isSource(s, iCfg)) {
+								sources.add(u);
+								logger.debug("Source found: {}", u);
+							}
+							if (sourcesSinks.isSink(s, iCfg)) {
+								sinks.add(u);
+								logger.debug("Sink found: {}", u);
 							}
 						}
 					}
 				}
 				
-				for (ResultsAvailableHandler handler : onResultsAvailable)
-					handler.onResultsAvailable(iCfg, results);
-			}
-
-			
-		});
-
-        for (Transform tr : preProcessors){
-            PackManager.v().getPack("wjtp").add(tr);
-        }
-		PackManager.v().getPack("wjtp").add(transform);
+			}));
+		}
+		
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		}
+		catch (InterruptedException e) {
+			executor.shutdownNow();
+			throw new RuntimeException("Interrupted while looking for sources and sinks", e);
+		}
+		catch (ExecutionException e) {
+			executor.shutdownNow();
+			throw new RuntimeException("Could not look for sources and sinks", e.getCause());
+		}
 	}
 
 		private void stringToTextFile(String fileName, String contents) throws IOException {
@@ -593,6 +972,34 @@ public class Infoflow implements IInfoflow {
 			}
 		}
 
+	@Override
+	public void computeInfoflow(ISourceSinkManager sourcesSinks) {
+		results = null;
+		if (sourcesSinks == null) {
+			logger.error("Sources are empty!");
+			return;
+		}
+		if (iCfg == null) {
+			logger.error("No analysis session has been initialized");
+			return;
+		}
+		runAnalysis(sourcesSinks, sessionSeeds);
+	}
+	
+	@Override
+	public void computeInfoflow(List<String> sources, List<String> sinks) {
+		computeInfoflow(new DefaultSourceSinkManager(sources, sinks));
+	}
+	
+	@Override
+	public void closeSession() {
+		results = null;
+		iCfg = null;
+		backwardsICfg = null;
+		sessionSeeds = null;
+		soot.G.reset();
+	}
+
 	@Override
 	public InfoflowResults getResults() {
 		return results;
@@ -605,6 +1012,37 @@ public class Infoflow implements IInfoflow {
 		}
 		return true;
 	}
+	
+	/**
+	 * Gets the number of path edges the solvers of the last analysis run
+	 * have processed in batches
+	 * @return The number of path edges processed in batches
+	 * @see #setEnableEdgeBatching(boolean)
+	 */
+	public int getBatchedEdgeCount() {
+		return batchedEdges;
+	}
+	
+	/**
+	 * Gets the number of batches the solvers of the last analysis run have
+	 * processed
+	 * @return The number of batches processed
+	 * @see #setEnableEdgeBatching(boolean)
+	 */
+	public int getEdgeBatchCount() {
+		return edgeBatches;
+	}
+	
+	/**
+	 * Gets the number of times the last analysis run has answered an alias
+	 * request from a backward search that had already been started for a
+	 * different context
+	 * @return The number of alias requests answered by existing searches
+	 * @see #setEnableAliasQueryCache(boolean)
+	 */
+	public int getAliasQueryReuseCount() {
+		return aliasQueryReuses;
+	}
 
 	
 	public static int getAccessPathLength() {
@@ -644,5 +1082,10 @@ public class Infoflow implements IInfoflow {
 	public void setMaxThreadNum(int threadNum) {
 		this.maxThreadNum = threadNum;
 	}
+	
+	@Override
+	public void setFactSharingPool(IFactSharingPool pool) {
+		this.factSharingPool = pool;
+	}
 
 }
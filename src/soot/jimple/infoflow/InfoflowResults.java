@@ -19,6 +19,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +29,9 @@ import org.slf4j.LoggerFactory;
 import soot.Value;
 import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.Abstraction.SourceContext;
+import soot.jimple.infoflow.data.Abstraction.SourceContextAndPath;
 import soot.tagkit.LineNumberTag;
 
 /**
@@ -44,7 +50,10 @@ public class InfoflowResults {
 	public class SourceInfo {
 		private final Value source;
 		private final Stmt context;
-		private final List<Stmt> path;
+		private List<Stmt> path;
+		
+		private Abstraction sinkAbstraction;
+		private final Stmt sinkStmt;
 		
 		public SourceInfo(Value source, Stmt context) {
 			assert source != null;
@@ -52,6 +61,8 @@ public class InfoflowResults {
 			this.source = source;
 			this.context = context;
 			this.path = null;
+			this.sinkAbstraction = null;
+			this.sinkStmt = null;
 		}
 		
 		public SourceInfo(Value source, Stmt context, List<Stmt> path) {
@@ -60,6 +71,29 @@ public class InfoflowResults {
 			this.source = source;
 			this.context = context;
 			this.path = path;
+			this.sinkAbstraction = null;
+			this.sinkStmt = null;
+		}
+		
+		/**
+		 * Creates a new source whose propagation path is only reconstructed
+		 * when it is requested for the first time
+		 * @param source The source value
+		 * @param context The statement at which the source value was created
+		 * @param sinkAbstraction The abstraction with which the sink was
+		 * reached
+		 * @param sinkStmt The statement at which the sink was reached
+		 */
+		public SourceInfo(Value source, Stmt context, Abstraction sinkAbstraction,
+				Stmt sinkStmt) {
+			assert source != null;
+			assert sinkAbstraction != null;
+
+			this.source = source;
+			this.context = context;
+			this.path = null;
+			this.sinkAbstraction = sinkAbstraction;
+			this.sinkStmt = sinkStmt;
 		}
 
 		public Value getSource() {
@@ -70,9 +104,36 @@ public class InfoflowResults {
 			return this.context;
 		}
 		
-		public List<Stmt> getPath() {
+		/**
+		 * Gets the propagation path from this source to the sink. If the path
+		 * has not been reconstructed yet, this is done now.
+		 * @return The propagation path from this source to the sink, or null
+		 * if no path has been recorded or the path is longer than the
+		 * maximum path length
+		 */
+		public synchronized List<Stmt> getPath() {
+			if (this.sinkAbstraction != null) {
+				SourceContextAndPath scap = this.sinkAbstraction.getPath
+						(new SourceContext(source, context), maxPathLength);
+				if (scap != null)
+					this.path = scap.extendPath(sinkStmt).getPath();
+				
+				// The abstraction graph is no longer needed
+				this.sinkAbstraction = null;
+			}
 			return this.path;
 		}
+		
+		/**
+		 * Gets the propagation path from this source to the sink if it has
+		 * already been reconstructed. Other than {@link #getPath()}, this
+		 * method never starts a reconstruction.
+		 * @return The propagation path from this source to the sink, or null
+		 * if the path has not been reconstructed (yet)
+		 */
+		public synchronized List<Stmt> getComputedPath() {
+			return this.sinkAbstraction == null ? this.path : null;
+		}
 
         @Override
         public String toString(){
@@ -154,11 +215,32 @@ public class InfoflowResults {
 	}
 	
 	private final Map<SinkInfo, Set<SourceInfo>> results = new ConcurrentHashMap<SinkInfo, Set<SourceInfo>>();
+	private volatile int maxPathLength = Integer.MAX_VALUE;
+	private volatile boolean partial = false;
 	
 	public InfoflowResults() {
 		
 	}
 	
+	/**
+	 * Sets whether this result object is partial, i.e. the analysis was
+	 * stopped before it could explore the whole program
+	 * @param partial True if this result object is partial, otherwise false
+	 */
+	public void setPartial(boolean partial) {
+		this.partial = partial;
+	}
+	
+	/**
+	 * Gets whether this result object is partial. In that case, it only
+	 * contains the flows that were found before the analysis was stopped
+	 * and there may be further flows in the program.
+	 * @return True if this result object is partial, otherwise false
+	 */
+	public boolean isPartial() {
+		return this.partial;
+	}
+	
 	/**
 	 * Gets the number of entries in this result object
 	 * @return The number of entries in this result object
@@ -218,6 +300,20 @@ public class InfoflowResults {
 				new SourceInfo(source, sourceStmt, newPropPath));
 	}
 
+	/**
+	 * Adds a result whose propagation path is only reconstructed on demand
+	 * @param sink The value that reached the sink
+	 * @param sinkStmt The statement at which the sink was reached
+	 * @param source The source value
+	 * @param sourceStmt The statement at which the source value was created
+	 * @param sinkAbstraction The abstraction with which the sink was reached
+	 */
+	public void addResult(Value sink, Stmt sinkStmt, Value source,
+			Stmt sourceStmt, Abstraction sinkAbstraction) {
+		this.addResult(new SinkInfo(sink, sinkStmt),
+				new SourceInfo(source, sourceStmt, sinkAbstraction, sinkStmt));
+	}
+
 	public synchronized void addResult(SinkInfo sink, SourceInfo source) {
 		Set<SourceInfo> sourceInfo = this.results.get(sink);
 		if (sourceInfo == null) {
@@ -227,6 +323,73 @@ public class InfoflowResults {
 		sourceInfo.add(source);
 	}
 
+	/**
+	 * Sets the maximum number of statements on a reconstructed propagation
+	 * path. Longer paths are not reported.
+	 * @param maxPathLength The maximum number of statements on a path
+	 */
+	public void setMaxPathLength(int maxPathLength) {
+		this.maxPathLength = maxPathLength;
+	}
+	
+	/**
+	 * Reconstructs the propagation paths for the results in this object. The
+	 * sinks are processed in parallel. Paths that are not reconstructed here
+	 * are still computed when they are requested for the first time.
+	 * @param maxPathsPerSink The maximum number of paths to reconstruct for
+	 * each sink
+	 * @param numThreads The number of threads to use, or a non-positive
+	 * value to use one thread per available processor
+	 */
+	public void computePaths(int maxPathsPerSink, int numThreads) {
+		computePaths(maxPathsPerSink, numThreads, -1);
+	}
+	
+	/**
+	 * Reconstructs the propagation paths for the results in this object. The
+	 * sinks are processed in parallel. Once the given time is up, no further
+	 * reconstructions are started. Paths that are not reconstructed here are
+	 * still computed when they are requested for the first time.
+	 * @param maxPathsPerSink The maximum number of paths to reconstruct for
+	 * each sink
+	 * @param numThreads The number of threads to use, or a non-positive
+	 * value to use one thread per available processor
+	 * @param timeout The time in milliseconds after which no further paths
+	 * shall be reconstructed, or -1 for no time limit. A reconstruction
+	 * that is already running when the time is up is completed.
+	 */
+	public void computePaths(final int maxPathsPerSink, int numThreads, long timeout) {
+		final boolean hasDeadline = timeout >= 0;
+		final long deadline = System.nanoTime() + (hasDeadline ? timeout * 1000000 : 0);
+		
+		int threads = numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (final Set<SourceInfo> sources : this.results.values())
+			executor.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					int pathCount = 0;
+					for (SourceInfo source : sources) {
+						if (pathCount++ >= maxPathsPerSink)
+							break;
+						if (hasDeadline && System.nanoTime() - deadline >= 0)
+							break;
+						source.getPath();
+					}
+				}
+				
+			});
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			logger.error("Path reconstruction was interrupted", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Gets all results in this object as a hash map.
 	 * @return All results in this object as a hash map.
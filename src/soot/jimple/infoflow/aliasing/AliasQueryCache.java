@@ -0,0 +1,199 @@
+package soot.jimple.infoflow.aliasing;
+
+import heros.solver.Pair;
+import heros.solver.PathEdge;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import soot.NullType;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.internal.JimpleLocal;
+
+/**
+ * Cache that makes the alias searches of the backward solver independent of
+ * the context in the forward solver. Every search for the aliases of a
+ * backward abstraction at a given statement runs only once, with a context
+ * of its own. The edges that the search injects into the forward solver are
+ * recorded and replayed for every forward context that asks for the same
+ * aliases at the same statement, including the ones that only ask later.
+ * Searches at different statements never share their results, since the
+ * forward contexts that request them belong to different methods.
+ *
+ * @author Steven Arzt
+ */
+public class AliasQueryCache {
+
+	/**
+	 * A single alias search together with the forward contexts that wait
+	 * for its results
+	 */
+	private static class AliasQuery {
+
+		private final Abstraction queryContext;
+		private final Set<Abstraction> requesters = new HashSet<Abstraction>();
+		private final Set<Pair<Unit, Abstraction>> results = new HashSet<Pair<Unit, Abstraction>>();
+		private final Set<Pair<Unit, Abstraction>> contextResults = new HashSet<Pair<Unit, Abstraction>>();
+
+		public AliasQuery(Abstraction queryContext) {
+			this.queryContext = queryContext;
+		}
+
+	}
+
+	private final ConcurrentMap<Pair<Unit, Abstraction>, AliasQuery> queries =
+			new ConcurrentHashMap<Pair<Unit, Abstraction>, AliasQuery>();
+	private final ConcurrentMap<Abstraction, AliasQuery> contexts =
+			new ConcurrentHashMap<Abstraction, AliasQuery>();
+	private final AtomicInteger reuseCount = new AtomicInteger(0);
+
+	/**
+	 * Registers a forward context that asks for the aliases of the given
+	 * backward abstraction at the given statement. All results that the
+	 * search has produced so far are immediately injected into the forward
+	 * solver for the new context.
+	 * @param fSolver The forward solver
+	 * @param bwAbs The backward abstraction whose aliases are requested
+	 * @param src The statement at which the aliases are requested
+	 * @param d1 The context of the request in the forward solver
+	 * @return The context with which the alias search must be started in
+	 * the backward solver, or null if the search has already been started
+	 * for the given abstraction at the given statement
+	 */
+	public Abstraction registerQuery(InfoflowSolver fSolver, Abstraction bwAbs, Stmt src, Abstraction d1) {
+		Pair<Unit, Abstraction> key = new Pair<Unit, Abstraction>(src, bwAbs);
+		AliasQuery query = queries.get(key);
+		boolean newQuery = false;
+		if (query == null) {
+			query = new AliasQuery(createQueryContext(src));
+			AliasQuery oldQuery = queries.putIfAbsent(key, query);
+			if (oldQuery != null)
+				query = oldQuery;
+			else {
+				// The search is only started once we return, so the context
+				// is known before the first alias arrives
+				contexts.put(query.queryContext, query);
+				newQuery = true;
+			}
+		}
+
+		List<Pair<Unit, Abstraction>> replay = null;
+		List<Pair<Unit, Abstraction>> contextReplay = null;
+		synchronized (query) {
+			if (query.requesters.add(d1)) {
+				if (!newQuery)
+					reuseCount.incrementAndGet();
+				replay = new ArrayList<Pair<Unit, Abstraction>>(query.results);
+				if (isForwardContext(d1))
+					contextReplay = new ArrayList<Pair<Unit, Abstraction>>(query.contextResults);
+			}
+		}
+
+		if (replay != null)
+			for (Pair<Unit, Abstraction> result : replay)
+				fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, result.getO1(), result.getO2()));
+		if (contextReplay != null)
+			for (Pair<Unit, Abstraction> result : contextReplay)
+				fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, result.getO1(), result.getO2()));
+		return newQuery ? query.queryContext : null;
+	}
+
+	/**
+	 * Creates the context for a new alias search in the backward solver. The
+	 * context is only used as a key. It is based on a fresh local, so that
+	 * it is different from all other abstractions, including the contexts
+	 * of the searches for the same backward abstraction at other
+	 * statements.
+	 * @param src The statement at which the search is started
+	 * @return The context for the new alias search
+	 */
+	private Abstraction createQueryContext(Stmt src) {
+		return new Abstraction(new JimpleLocal("aliasQuery", NullType.v()), null,
+				src, false, true, null, true);
+	}
+
+	/**
+	 * Injects an alias found by the backward solver into the forward solver.
+	 * If the alias was found in the context of a cached search, it is
+	 * injected for all forward contexts that have requested the search.
+	 * @param fSolver The forward solver
+	 * @param d1 The context of the alias in the backward solver
+	 * @param u The statement at which to inject the alias
+	 * @param fabs The forward abstraction for the alias
+	 */
+	public void injectAlias(InfoflowSolver fSolver, Abstraction d1, Unit u, Abstraction fabs) {
+		inject(fSolver, d1, u, fabs, false);
+	}
+
+	/**
+	 * Injects a call site abstraction whose callee has been entered by the
+	 * backward solver into the forward solver, so that the forward solver
+	 * can return the aliases found in the callee to the caller. Contexts
+	 * with an empty or static access path are skipped.
+	 * @param fSolver The forward solver
+	 * @param d1 The context of the abstraction in the backward solver
+	 * @param callSite The call site
+	 * @param d2 The abstraction at the call site
+	 */
+	public void injectCallSite(InfoflowSolver fSolver, Abstraction d1, Unit callSite, Abstraction d2) {
+		inject(fSolver, d1, callSite, d2, true);
+	}
+
+	private void inject(InfoflowSolver fSolver, Abstraction d1, Unit u, Abstraction fabs,
+			boolean callSite) {
+		AliasQuery query = contexts.get(d1);
+		if (query == null) {
+			if (!callSite || isForwardContext(d1))
+				fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+			return;
+		}
+
+		List<Abstraction> requesters;
+		Pair<Unit, Abstraction> result = new Pair<Unit, Abstraction>(u, fabs);
+		synchronized (query) {
+			if (!(callSite ? query.contextResults : query.results).add(result))
+				return;
+			requesters = new ArrayList<Abstraction>(query.requesters);
+		}
+		for (Abstraction requester : requesters)
+			if (!callSite || isForwardContext(requester))
+				fSolver.processEdge(new PathEdge<Unit, Abstraction>(requester, u, fabs));
+	}
+
+	/**
+	 * Checks whether call site abstractions need to be injected for the given
+	 * context
+	 * @param d1 The context to check
+	 * @return True if the access path of the context is neither empty nor
+	 * static, otherwise false
+	 */
+	private boolean isForwardContext(Abstraction d1) {
+		return !d1.getAccessPath().isEmpty() && !d1.getAccessPath().isStaticFieldRef();
+	}
+
+	/**
+	 * Gets the number of times a forward context has been served by an alias
+	 * search that had already been started for a different context
+	 * @return The number of requests answered by existing alias searches
+	 */
+	public int getReuseCount() {
+		return reuseCount.get();
+	}
+
+	/**
+	 * Gets the number of distinct alias searches started so far
+	 * @return The number of distinct alias searches
+	 */
+	public int size() {
+		return queries.size();
+	}
+
+}
@@ -0,0 +1,93 @@
+package soot.jimple.infoflow.aliasing;
+
+import java.util.BitSet;
+
+import soot.PointsToSet;
+
+/**
+ * Points-to set that represents the allocation sites it contains as a bit
+ * set over the dense numbering of a {@link PointsToSupport}. Points-to sets
+ * whose contents cannot be enumerated keep the original set and are
+ * compared by identity.
+ *
+ * @author Steven Arzt
+ */
+public class DensePointsToSet {
+
+	private final int id;
+	private final BitSet allocSites;
+	private final PointsToSet pointsToSet;
+	private final int hashCode;
+
+	/**
+	 * Creates a new instance of the {@link DensePointsToSet} class
+	 * @param id The unique number of this set in its {@link PointsToSupport}
+	 * @param allocSites The numbers of the allocation sites in this set, or
+	 * null if the original set cannot be enumerated
+	 * @param pointsToSet The original points-to set
+	 */
+	DensePointsToSet(int id, BitSet allocSites, PointsToSet pointsToSet) {
+		this.id = id;
+		this.allocSites = allocSites;
+		this.pointsToSet = pointsToSet;
+		this.hashCode = allocSites == null ? System.identityHashCode(pointsToSet)
+				: allocSites.hashCode();
+	}
+
+	/**
+	 * Gets the unique number of this set in its {@link PointsToSupport}
+	 * @return The unique number of this set
+	 */
+	int getId() {
+		return this.id;
+	}
+
+	/**
+	 * Checks whether this set has at least one allocation site in common with
+	 * the given one
+	 * @param other The set to compare with
+	 * @return True if the two sets intersect, otherwise false
+	 */
+	boolean intersects(DensePointsToSet other) {
+		if (this.allocSites != null && other.allocSites != null)
+			return this.allocSites.intersects(other.allocSites);
+		return this.pointsToSet.hasNonEmptyIntersection(other.pointsToSet);
+	}
+
+	/**
+	 * Gets whether this set is empty
+	 * @return True if this set does not contain any allocation site,
+	 * otherwise false
+	 */
+	public boolean isEmpty() {
+		if (this.allocSites != null)
+			return this.allocSites.isEmpty();
+		return this.pointsToSet.isEmpty();
+	}
+
+	/**
+	 * Gets the original points-to set from which this set was created
+	 * @return The original points-to set
+	 */
+	public PointsToSet getPointsToSet() {
+		return this.pointsToSet;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || !(obj instanceof DensePointsToSet))
+			return false;
+		DensePointsToSet other = (DensePointsToSet) obj;
+		if (this.allocSites == null || other.allocSites == null)
+			return this.pointsToSet == other.pointsToSet;
+		return this.allocSites.equals(other.allocSites);
+	}
+
+}
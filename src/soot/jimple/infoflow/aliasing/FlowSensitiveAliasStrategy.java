@@ -20,10 +20,25 @@ import soot.jimple.infoflow.heros.InfoflowSolver;
 public class FlowSensitiveAliasStrategy extends AbstractBulkAliasStrategy {
 	
 	private final InfoflowSolver bSolver;
+	private final AliasQueryCache aliasQueries;
 	
 	public FlowSensitiveAliasStrategy(IInfoflowCFG cfg, InfoflowSolver backwardsSolver) {
+		this(cfg, backwardsSolver, null);
+	}
+	
+	/**
+	 * Creates a new instance of the {@link FlowSensitiveAliasStrategy} class
+	 * @param cfg The interprocedural control flow graph
+	 * @param backwardsSolver The solver for the backward alias searches
+	 * @param aliasQueries The cache for sharing the alias searches between
+	 * all forward contexts, or null to run a separate search for every
+	 * context. The same cache must be set on the backward problem.
+	 */
+	public FlowSensitiveAliasStrategy(IInfoflowCFG cfg, InfoflowSolver backwardsSolver,
+			AliasQueryCache aliasQueries) {
 		super(cfg);
 		this.bSolver = backwardsSolver;
+		this.aliasQueries = aliasQueries;
 	}
 
 	@Override
@@ -33,8 +48,16 @@ public class FlowSensitiveAliasStrategy extends AbstractBulkAliasStrategy {
 			SootMethod method, Abstraction newAbs) {
 		// Start the backwards solver
 		Abstraction bwAbs = newAbs.deriveInactiveAbstraction();
+		Abstraction queryContext = d1;
+		if (aliasQueries != null) {
+			// If the same search has already been started for a different
+			// context, we only need its results
+			queryContext = aliasQueries.registerQuery(getForwardSolver(), bwAbs, src, d1);
+			if (queryContext == null)
+				return;
+		}
 		for (Unit predUnit : interproceduralCFG().getPredsOf(src))
-			bSolver.processEdge(new PathEdge<Unit, Abstraction>(d1,
+			bSolver.processEdge(new PathEdge<Unit, Abstraction>(queryContext,
 					predUnit, bwAbs));		
 	}
 
@@ -1,6 +1,10 @@
 package soot.jimple.infoflow.aliasing;
 
+import heros.solver.IDESolver;
+
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import soot.Local;
@@ -15,8 +19,8 @@ import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.heros.IInfoflowCFG;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 
 /**
  * Aliasing strategy to be used for conditionally-called methods when analyzing
@@ -26,70 +30,77 @@ import com.google.common.collect.Table;
  */
 public class ImplicitFlowAliasStrategy extends AbstractBulkAliasStrategy {
 
+	/**
+	 * The non-flow-sensitive alias information per method. Every method is
+	 * only analyzed once, and threads asking for different methods do not
+	 * block each other.
+	 */
+	private final LoadingCache<SootMethod, Map<AccessPath, Set<AccessPath>>> methodToAliases =
+			IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SootMethod, Map<AccessPath, Set<AccessPath>>>() {
+				@Override
+				public Map<AccessPath, Set<AccessPath>> load(SootMethod method) throws Exception {
+					return computeGlobalAliases(method);
+				}
+			});
+
     public ImplicitFlowAliasStrategy(IInfoflowCFG cfg) {
 		super(cfg);
 	}
 
-	private final Table<SootMethod, AccessPath, Set<AccessPath>> globalAliases = HashBasedTable.create();
-
 	/**
 	 * Computes the global non-flow-sensitive alias information for the given
 	 * method
 	 * @param method The method for which to compute the alias information
+	 * @return A mapping from access paths to the access paths they may alias
 	 */
-	private void computeGlobalAliases(SootMethod method) {
-		synchronized (globalAliases) {
-			// If we already know the aliases for the given method, there is nothing
-			// left to be done
-			if (globalAliases.containsRow(method))
-				return;
-	
-			// Find the aliases
-			for (Unit u : method.getActiveBody().getUnits()) {
-				if (!(u instanceof AssignStmt))
+	private Map<AccessPath, Set<AccessPath>> computeGlobalAliases(SootMethod method) {
+		Map<AccessPath, Set<AccessPath>> aliases = new HashMap<AccessPath, Set<AccessPath>>();
+
+		// Find the aliases
+		for (Unit u : method.getActiveBody().getUnits()) {
+			if (!(u instanceof AssignStmt))
+				continue;
+			final AssignStmt assign = (AssignStmt) u;
+			
+			// Aliases can only be generated on the heap
+			if (!(assign.getLeftOp() instanceof FieldRef
+					&& (assign.getRightOp() instanceof FieldRef
+							|| assign.getRightOp() instanceof Local)))
+				if (!(assign.getRightOp() instanceof FieldRef
+						&& (assign.getLeftOp() instanceof FieldRef
+								|| assign.getLeftOp() instanceof Local)))
 					continue;
-				final AssignStmt assign = (AssignStmt) u;
-				
-				// Aliases can only be generated on the heap
-				if (!(assign.getLeftOp() instanceof FieldRef
-						&& (assign.getRightOp() instanceof FieldRef
-								|| assign.getRightOp() instanceof Local)))
-					if (!(assign.getRightOp() instanceof FieldRef
-							&& (assign.getLeftOp() instanceof FieldRef
-									|| assign.getLeftOp() instanceof Local)))
-						continue;
-				
-				final AccessPath apLeft = new AccessPath(assign.getLeftOp());
-				final AccessPath apRight = new AccessPath(assign.getRightOp());
+			
+			final AccessPath apLeft = new AccessPath(assign.getLeftOp());
+			final AccessPath apRight = new AccessPath(assign.getRightOp());
 
-				Set<AccessPath> mapLeft = globalAliases.get(method, apLeft);
-				if (mapLeft == null) {
-					mapLeft = new HashSet<AccessPath>();
-					globalAliases.put(method, apLeft, mapLeft);
-				}
-				mapLeft.add(apRight);
+			Set<AccessPath> mapLeft = aliases.get(apLeft);
+			if (mapLeft == null) {
+				mapLeft = new HashSet<AccessPath>();
+				aliases.put(apLeft, mapLeft);
+			}
+			mapLeft.add(apRight);
 
-				Set<AccessPath> mapRight = globalAliases.get(method, apRight);
-				if (mapRight == null) {
-					mapRight = new HashSet<AccessPath>();
-					globalAliases.put(method, apRight, mapRight);
-				}
-				mapLeft.add(apLeft);
+			Set<AccessPath> mapRight = aliases.get(apRight);
+			if (mapRight == null) {
+				mapRight = new HashSet<AccessPath>();
+				aliases.put(apRight, mapRight);
 			}
+			mapRight.add(apLeft);
 		}
+		return aliases;
 	}
 
 	@Override
 	public void computeAliasTaints(Abstraction d1, Stmt src, Value targetValue,
 			Set<Abstraction> taintSet, SootMethod method, Abstraction newAbs) {
-		// If we don't have an alias set for this method yet, we compute it
-		if (!globalAliases.containsRow(method))
-			computeGlobalAliases(method);
+		// If we don't have an alias set for this method yet, the cache
+		// computes it
+		Map<AccessPath, Set<AccessPath>> methodAliases = methodToAliases.getUnchecked(method);
 		
 		// Use global aliasing
 		Value baseValue = ((InstanceFieldRef) targetValue).getBase();
-		Set<AccessPath> aliases = globalAliases.get(method, new AccessPath(
-				baseValue));
+		Set<AccessPath> aliases = methodAliases.get(new AccessPath(baseValue));
 		if (aliases != null)
 			for (AccessPath ap : aliases) {
 				Abstraction aliasAbs = newAbs.deriveNewAbstraction(
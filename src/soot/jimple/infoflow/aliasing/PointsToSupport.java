@@ -0,0 +1,193 @@
+package soot.jimple.infoflow.aliasing;
+
+import heros.solver.Pair;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import soot.Local;
+import soot.PointsToAnalysis;
+import soot.PointsToSet;
+import soot.SootField;
+import soot.Value;
+import soot.jimple.ArrayRef;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.spark.sets.PointsToSetInternal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Common access to the points-to analysis for the aliasing strategies. The
+ * points-to set of every local, field and field of a local is only taken
+ * from the points-to analysis once and converted into a bit set over a
+ * dense numbering of the allocation sites. Equal sets are shared, and the
+ * answers to intersection queries are cached. An instance must only be used
+ * as long as the points-to analysis does not change.
+ *
+ * @author Steven Arzt
+ */
+public class PointsToSupport {
+
+	/**
+	 * The maximum number of intersection results to keep in the cache
+	 */
+	private static final int MAX_CACHED_INTERSECTIONS = 100000;
+
+	private final PointsToAnalysis pta;
+
+	private final ConcurrentMap<Node, Integer> allocSiteIds = new ConcurrentHashMap<Node, Integer>();
+	private final AtomicInteger nextAllocSiteId = new AtomicInteger(0);
+
+	private final ConcurrentMap<DensePointsToSet, DensePointsToSet> sharedSets =
+			new ConcurrentHashMap<DensePointsToSet, DensePointsToSet>();
+	private final AtomicInteger nextSetId = new AtomicInteger(0);
+
+	/**
+	 * Points-to sets by the local, field, or pair of local and field for
+	 * which they have been computed
+	 */
+	private final LoadingCache<Object, DensePointsToSet> pointsToSets = CacheBuilder.newBuilder().build
+			(new CacheLoader<Object, DensePointsToSet>() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public DensePointsToSet load(Object key) throws Exception {
+					if (key instanceof Local)
+						return toDenseSet(pta.reachingObjects((Local) key));
+					if (key instanceof SootField)
+						return toDenseSet(pta.reachingObjects((SootField) key));
+					Pair<Local, SootField> pair = (Pair<Local, SootField>) key;
+					return toDenseSet(pta.reachingObjects(pair.getO1(), pair.getO2()));
+				}
+			});
+
+	/**
+	 * Intersection results keyed by the numbers of the two sets, with the
+	 * smaller number in the upper half
+	 */
+	private final Cache<Long, Boolean> intersections = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED_INTERSECTIONS).build();
+
+	/**
+	 * Creates a new instance of the {@link PointsToSupport} class
+	 * @param pta The points-to analysis from which to take the points-to sets
+	 */
+	public PointsToSupport(PointsToAnalysis pta) {
+		this.pta = pta;
+	}
+
+	/**
+	 * Converts the given points-to set into a dense points-to set and shares
+	 * it with all equal sets
+	 * @param pts The points-to set to convert
+	 * @return The dense representation of the given points-to set
+	 */
+	private DensePointsToSet toDenseSet(PointsToSet pts) {
+		BitSet allocSites = null;
+		if (pts instanceof PointsToSetInternal) {
+			final BitSet bits = new BitSet();
+			((PointsToSetInternal) pts).forall(new P2SetVisitor() {
+				@Override
+				public void visit(Node n) {
+					bits.set(getAllocSiteId(n));
+				}
+			});
+			allocSites = bits;
+		}
+
+		DensePointsToSet denseSet = new DensePointsToSet(nextSetId.getAndIncrement(), allocSites, pts);
+		DensePointsToSet sharedSet = sharedSets.putIfAbsent(denseSet, denseSet);
+		return sharedSet == null ? denseSet : sharedSet;
+	}
+
+	/**
+	 * Gets the dense number of the given allocation site
+	 * @param n The allocation site
+	 * @return The dense number of the given allocation site
+	 */
+	private int getAllocSiteId(Node n) {
+		Integer id = allocSiteIds.get(n);
+		if (id == null) {
+			Integer newId = nextAllocSiteId.getAndIncrement();
+			id = allocSiteIds.putIfAbsent(n, newId);
+			if (id == null)
+				id = newId;
+		}
+		return id;
+	}
+
+	/**
+	 * Gets the points-to set for the given value
+	 * @param targetValue The value for which to get the points-to set
+	 * @return The points-to set for the given value
+	 */
+	public DensePointsToSet getPointsToSet(Value targetValue) {
+		if (targetValue instanceof Local)
+			return pointsToSets.getUnchecked(targetValue);
+		else if (targetValue instanceof InstanceFieldRef) {
+			InstanceFieldRef iref = (InstanceFieldRef) targetValue;
+			return pointsToSets.getUnchecked(new Pair<Local, SootField>
+					((Local) iref.getBase(), iref.getField()));
+		}
+		else if (targetValue instanceof StaticFieldRef) {
+			StaticFieldRef sref = (StaticFieldRef) targetValue;
+			return pointsToSets.getUnchecked(sref.getField());
+		}
+		else if (targetValue instanceof ArrayRef) {
+			ArrayRef aref = (ArrayRef) targetValue;
+			return pointsToSets.getUnchecked(aref.getBase());
+		}
+		else
+			throw new RuntimeException("Unexpected value type for aliasing: " + targetValue.getClass());
+	}
+
+	/**
+	 * Gets the points-to set for the given access path
+	 * @param accessPath The access path for which to get the points-to set
+	 * @return The points-to set for the given access path
+	 */
+	public DensePointsToSet getPointsToSet(AccessPath accessPath) {
+		if (accessPath.isLocal())
+			return pointsToSets.getUnchecked(accessPath.getPlainLocal());
+		else if (accessPath.isInstanceFieldRef())
+			return pointsToSets.getUnchecked(new Pair<Local, SootField>
+					(accessPath.getPlainLocal(), accessPath.getFirstField()));
+		else if (accessPath.isStaticFieldRef())
+			return pointsToSets.getUnchecked(accessPath.getFirstField());
+		else
+			throw new RuntimeException("Unexepected access path type");
+	}
+
+	/**
+	 * Checks whether the two given points-to sets have at least one
+	 * allocation site in common
+	 * @param pts1 The first points-to set
+	 * @param pts2 The second points-to set
+	 * @return True if the two points-to sets intersect, otherwise false
+	 */
+	public boolean hasNonEmptyIntersection(DensePointsToSet pts1, DensePointsToSet pts2) {
+		if (pts1 == pts2)
+			return !pts1.isEmpty();
+		if (pts1.isEmpty() || pts2.isEmpty())
+			return false;
+
+		long id1 = Math.min(pts1.getId(), pts2.getId());
+		long id2 = Math.max(pts1.getId(), pts2.getId());
+		Long key = (id1 << 32) | id2;
+		Boolean result = intersections.getIfPresent(key);
+		if (result == null) {
+			result = pts1.intersects(pts2);
+			intersections.put(key, result);
+		}
+		return result;
+	}
+
+}
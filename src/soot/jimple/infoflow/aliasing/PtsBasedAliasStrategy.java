@@ -1,14 +1,15 @@
 package soot.jimple.infoflow.aliasing;
 
+import heros.solver.IDESolver;
 import heros.solver.PathEdge;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import soot.Local;
-import soot.PointsToSet;
 import soot.Scene;
 import soot.SootField;
 import soot.SootMethod;
@@ -17,15 +18,15 @@ import soot.Value;
 import soot.jimple.ArrayRef;
 import soot.jimple.DefinitionStmt;
 import soot.jimple.FieldRef;
-import soot.jimple.InstanceFieldRef;
 import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.InvokeExpr;
-import soot.jimple.StaticFieldRef;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.heros.IInfoflowCFG;
 
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
@@ -38,19 +39,74 @@ import com.google.common.collect.Table;
 public class PtsBasedAliasStrategy extends AbstractBulkAliasStrategy {
 	
 	private final Table<SootMethod, Abstraction, Set<Abstraction>> aliases = HashBasedTable.create();
+	
+	/**
+	 * Statements of a method that access values with the same points-to set
+	 */
+	private static class AliasClass {
+		
+		private final DensePointsToSet pts;
+		
+		/**
+		 * Calls whose base object has the points-to set of this class
+		 */
+		private final List<Stmt> invokes = new ArrayList<Stmt>();
+		
+		/**
+		 * Assignments whose right side has the points-to set of this class
+		 */
+		private final List<DefinitionStmt> reads = new ArrayList<DefinitionStmt>();
+		
+		/**
+		 * Assignments between aliasable values whose left side has the
+		 * points-to set of this class
+		 */
+		private final List<DefinitionStmt> writes = new ArrayList<DefinitionStmt>();
+		
+		public AliasClass(DensePointsToSet pts) {
+			this.pts = pts;
+		}
+		
+	}
+	
+	/**
+	 * Index from the points-to sets used in a method to the statements that
+	 * use them. An alias query only needs to intersect the tainted points-to
+	 * set once per distinct set instead of once per statement.
+	 */
+	private final LoadingCache<SootMethod, List<AliasClass>> methodToAliasClasses =
+			IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SootMethod, List<AliasClass>>() {
+				@Override
+				public List<AliasClass> load(SootMethod method) throws Exception {
+					return buildAliasClasses(method);
+				}
+			});
+
+	private final PointsToSupport pointsToSupport;
 
 	public PtsBasedAliasStrategy(IInfoflowCFG cfg) {
+		this(cfg, new PointsToSupport(Scene.v().getPointsToAnalysis()));
+	}
+
+	/**
+	 * Creates a new instance of the {@link PtsBasedAliasStrategy} class
+	 * @param cfg The interprocedural control flow graph
+	 * @param pointsToSupport The object through which to access the
+	 * points-to analysis
+	 */
+	public PtsBasedAliasStrategy(IInfoflowCFG cfg, PointsToSupport pointsToSupport) {
 		super(cfg);
+		this.pointsToSupport = pointsToSupport;
 	}
 
 	@Override
 	public void computeAliasTaints(Abstraction d1, Stmt src, Value targetValue,
 			Set<Abstraction> taintSet, SootMethod method, Abstraction newAbs) {
-		computeAliasTaintsInternal(d1, method, newAbs, Collections.<SootField>emptyList(), src);
+		computeAliasTaintsInternal(d1, method, newAbs, new SootField[0], src);
 	}
 
 	public void computeAliasTaintsInternal(Abstraction d1, SootMethod method,
-			Abstraction newAbs, List<SootField> appendFields, Stmt actStmt) {
+			Abstraction newAbs, SootField[] appendFields, Stmt actStmt) {
 		synchronized(aliases) {
 			if (aliases.contains(method, newAbs)) {
 				Set<Abstraction> d1s = aliases.get(method, newAbs);
@@ -65,107 +121,116 @@ public class PtsBasedAliasStrategy extends AbstractBulkAliasStrategy {
 			}
 		}
 		
-		PointsToSet ptsTaint = getPointsToSet(newAbs.getAccessPath());
-		SootField[] appendFieldsA = appendFields.toArray(new SootField[appendFields.size()]);
+		final AccessPath ap = newAbs.getAccessPath();
+		DensePointsToSet ptsTaint = pointsToSupport.getPointsToSet(ap);
+		DensePointsToSet ptsBaseOrg = null;
 		
 		// We run once per method and we are flow-insensitive anyway, so we
 		// can just say that every use of a variable aliased with a tainted
 		// one automatically taints the corresponding def set.
-		for (Unit u : method.getActiveBody().getUnits()) {			
+		for (AliasClass aliasClass : methodToAliasClasses.getUnchecked(method)) {
+			// If we have a call and the base object aliases with our base
+			// object, we also need to look for aliases in the callee
+			if (!aliasClass.invokes.isEmpty() && !ap.isStaticFieldRef()) {
+				if (ptsBaseOrg == null)
+					ptsBaseOrg = ap.isLocal() ? ptsTaint : pointsToSupport.getPointsToSet(ap.getPlainLocal());
+				if (pointsToSupport.hasNonEmptyIntersection(ptsBaseOrg, aliasClass.pts))
+					for (Stmt stmt : aliasClass.invokes)
+						getForwardSolver().processEdge(new PathEdge<Unit, Abstraction>(d1, stmt, newAbs));
+			}
+			
+			if (aliasClass.reads.isEmpty() && aliasClass.writes.isEmpty())
+				continue;
+			if (!pointsToSupport.hasNonEmptyIntersection(ptsTaint, aliasClass.pts))
+				continue;
+			
+			// If we have a = b and our taint is an alias to b, we must add
+			// a taint for a.
+			for (DefinitionStmt assign : aliasClass.reads) {
+				Abstraction aliasAbsLeft = newAbs.deriveNewAbstraction(new AccessPath
+						(assign.getLeftOp(), appendFields), assign).deriveInactiveAbstraction();
+				getForwardSolver().processEdge(new PathEdge<Unit, Abstraction>(d1, actStmt, aliasAbsLeft));
+			}
+			
+			// If we have a = b and our taint is an alias to a, we must add
+			// a taint for b.
+			for (DefinitionStmt assign : aliasClass.writes) {
+				Abstraction aliasAbsRight = newAbs.deriveNewAbstraction(new AccessPath
+						(assign.getRightOp(), appendFields), assign).deriveInactiveAbstraction();
+				getForwardSolver().processEdge(new PathEdge<Unit, Abstraction>(d1, actStmt, aliasAbsRight));
+			}
+		}
+		
+		// Also check for aliases for parts of the access path
+		if ((ap.isInstanceFieldRef() && ap.getFirstField() != null)
+				|| (ap.isStaticFieldRef() && ap.getFieldCount() > 1)) {
+			SootField[] appendList = new SootField[appendFields.length + 1];
+			System.arraycopy(appendFields, 0, appendList, 0, appendFields.length);
+			appendList[appendFields.length] = ap.getFirstField();
+			computeAliasTaintsInternal(d1, method, newAbs.deriveNewAbstraction
+					(ap.dropLastField(), actStmt), appendList, actStmt);
+		}
+	}
+	
+	/**
+	 * Groups the calls and assignments of the given method by the points-to
+	 * sets of the values they access
+	 * @param method The method for which to build the index
+	 * @return The groups of statements that access values with the same
+	 * points-to set
+	 */
+	private List<AliasClass> buildAliasClasses(SootMethod method) {
+		Map<DensePointsToSet, AliasClass> classes = new HashMap<DensePointsToSet, AliasClass>();
+		for (Unit u : method.getActiveBody().getUnits()) {
 			Stmt stmt = (Stmt) u;
 			if (stmt.containsInvokeExpr()) {
-				// If we have a call and the base object aliases with our base
-				// object, we also need to look for aliases in the callee
 				InvokeExpr invExpr = (InvokeExpr) stmt.getInvokeExpr();
-				if (invExpr instanceof InstanceInvokeExpr && !newAbs.getAccessPath().isStaticFieldRef()) {
-					InstanceInvokeExpr iinvExpr = (InstanceInvokeExpr) invExpr;
-					PointsToSet ptsBase = getPointsToSet((Local) iinvExpr.getBase());
-					PointsToSet ptsBaseOrg = getPointsToSet(newAbs.getAccessPath().getPlainLocal());
-					if (ptsBase.hasNonEmptyIntersection(ptsBaseOrg))
-						getForwardSolver().processEdge(new PathEdge<Unit, Abstraction>(d1, u, newAbs));
+				if (invExpr instanceof InstanceInvokeExpr) {
+					AliasClass aliasClass = getAliasClass(classes,
+							((InstanceInvokeExpr) invExpr).getBase());
+					if (aliasClass != null)
+						aliasClass.invokes.add(stmt);
 				}
 			}
 			else if (u instanceof DefinitionStmt) {
 				DefinitionStmt assign = (DefinitionStmt) u;
-				
-				// If we have a = b and our taint is an alias to b, we must add
-				// a taint for a.
-				if (assign.getRightOp() instanceof FieldRef || assign.getRightOp() instanceof Local
-						|| assign.getRightOp() instanceof ArrayRef)
-					if (isAliasedAtStmt(ptsTaint, assign.getRightOp())) {
-						Abstraction aliasAbsLeft = newAbs.deriveNewAbstraction(new AccessPath
-								(assign.getLeftOp(), appendFieldsA), stmt).deriveInactiveAbstraction();
-						getForwardSolver().processEdge(new PathEdge<Unit, Abstraction>(d1, actStmt, aliasAbsLeft));
+				if (isAliasable(assign.getRightOp())) {
+					AliasClass rightClass = getAliasClass(classes, assign.getRightOp());
+					if (rightClass != null)
+						rightClass.reads.add(assign);
+					if (isAliasable(assign.getLeftOp())) {
+						AliasClass leftClass = getAliasClass(classes, assign.getLeftOp());
+						if (leftClass != null)
+							leftClass.writes.add(assign);
 					}
-
-				// If we have a = b and our taint is an alias to a, we must add
-				// a taint for b.
-				if (assign.getLeftOp() instanceof FieldRef || assign.getLeftOp() instanceof Local
-						|| assign.getLeftOp() instanceof ArrayRef)
-					if (assign.getRightOp() instanceof FieldRef || assign.getRightOp() instanceof Local
-							|| assign.getRightOp() instanceof ArrayRef)
-						if (isAliasedAtStmt(ptsTaint, assign.getLeftOp())) {
-							Abstraction aliasAbsRight = newAbs.deriveNewAbstraction(new AccessPath
-									(assign.getRightOp(), appendFieldsA), stmt).deriveInactiveAbstraction();
-							getForwardSolver().processEdge(new PathEdge<Unit, Abstraction>(d1, actStmt, aliasAbsRight));
-						}
-			}
-
-			// Also check for aliases for parts of the access path
-			final AccessPath ap = newAbs.getAccessPath();
-			if ((ap.isInstanceFieldRef() && ap.getFirstField() != null)
-					|| (ap.isStaticFieldRef() && ap.getFieldCount() > 1)) {
-				List<SootField> appendList = new LinkedList<SootField>(appendFields);
-				appendList.add(newAbs.getAccessPath().getFirstField());
-				computeAliasTaintsInternal(d1, method, newAbs.deriveNewAbstraction
-						(newAbs.getAccessPath().dropLastField(), stmt), appendList, actStmt);
+				}
 			}
 		}
-	}
-	
-	private boolean isAliasedAtStmt(PointsToSet ptsTaint, Value val) {
-		PointsToSet ptsRight = getPointsToSet(val);
-		return ptsTaint.hasNonEmptyIntersection(ptsRight);
+		return new ArrayList<AliasClass>(classes.values());
 	}
 	
 	/**
-	 * Gets the points-to-set for the given value
-	 * @param targetValue The value for which to get the points-to-set
-	 * @return The points-to-set for the given value
+	 * Gets the group of statements for the points-to set of the given value,
+	 * creating it if necessary
+	 * @param classes The groups of statements created so far
+	 * @param val The value for which to get the group
+	 * @return The group for the points-to set of the given value, or null if
+	 * the points-to set is empty and thus cannot alias with anything
 	 */
-	private PointsToSet getPointsToSet(Value targetValue) {
-		if (targetValue instanceof Local)
-			return Scene.v().getPointsToAnalysis().reachingObjects((Local) targetValue);
-		else if (targetValue instanceof InstanceFieldRef) {
-			InstanceFieldRef iref = (InstanceFieldRef) targetValue;
-			return Scene.v().getPointsToAnalysis().reachingObjects((Local) iref.getBase(), iref.getField());
-		}
-		else if (targetValue instanceof StaticFieldRef) {
-			StaticFieldRef sref = (StaticFieldRef) targetValue;
-			return Scene.v().getPointsToAnalysis().reachingObjects(sref.getField());
+	private AliasClass getAliasClass(Map<DensePointsToSet, AliasClass> classes, Value val) {
+		DensePointsToSet pts = pointsToSupport.getPointsToSet(val);
+		if (pts.isEmpty())
+			return null;
+		AliasClass aliasClass = classes.get(pts);
+		if (aliasClass == null) {
+			aliasClass = new AliasClass(pts);
+			classes.put(pts, aliasClass);
 		}
-		else if (targetValue instanceof ArrayRef) {
-			ArrayRef aref = (ArrayRef) targetValue;
-			return Scene.v().getPointsToAnalysis().reachingObjects((Local) aref.getBase());
-		}
-		else
-			throw new RuntimeException("Unexpected value type for aliasing: " + targetValue.getClass());
+		return aliasClass;
 	}
-
-	/**
-	 * Gets the points-to-set for the given access path
-	 * @param accessPath The access path for which to get the points-to-set
-	 * @return The points-to-set for the given access path
-	 */
-	private PointsToSet getPointsToSet(AccessPath accessPath) {
-		if (accessPath.isLocal())
-			return Scene.v().getPointsToAnalysis().reachingObjects(accessPath.getPlainLocal());
-		else if (accessPath.isInstanceFieldRef())
-			return Scene.v().getPointsToAnalysis().reachingObjects(accessPath.getPlainLocal(), accessPath.getFirstField());
-		else if (accessPath.isStaticFieldRef())
-			return Scene.v().getPointsToAnalysis().reachingObjects(accessPath.getFirstField());
-		else
-			throw new RuntimeException("Unexepected access path type");
+	
+	private boolean isAliasable(Value val) {
+		return val instanceof FieldRef || val instanceof Local || val instanceof ArrayRef;
 	}
 	
 }
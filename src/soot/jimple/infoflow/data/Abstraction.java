@@ -13,9 +13,10 @@ package soot.jimple.infoflow.data;
 
 import heros.solver.PathTrackingIFDSSolver.LinkedNode;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -36,13 +37,19 @@ import com.google.common.collect.Sets;
 public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 
 	private static Abstraction zeroValue = null;
+	
+	/**
+	 * The pool for sharing equal parts of abstractions, null if no sharing
+	 * shall be performed
+	 */
+	private static IFactSharingPool sharingPool = null;
     
 	/**
 	 * Class representing a source value together with the statement that created it
 	 * 
 	 * @author Steven Arzt
 	 */
-	public class SourceContext implements Cloneable {
+	public static class SourceContext implements Cloneable {
 		private final Value value;
 		private final Stmt stmt;
 		
@@ -101,22 +108,31 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		}
 	}
 	
-	public class SourceContextAndPath extends SourceContext implements Cloneable {
-		private final List<Stmt> path = new LinkedList<Stmt>();
+	/**
+	 * Class representing a source value together with the path of statements
+	 * along which it has been propagated. Paths are immutable and share their
+	 * prefixes.
+	 * 
+	 * @author Steven Arzt
+	 */
+	public static class SourceContextAndPath extends SourceContext implements Cloneable {
+		private final StmtPath path;
 		
 		public SourceContextAndPath(Value value, Stmt stmt) {
+			this(value, stmt, new StmtPath(stmt));
+		}
+		
+		private SourceContextAndPath(Value value, Stmt stmt, StmtPath path) {
 			super(value, stmt);
-			path.add(stmt);
+			this.path = path;
 		}
 		
 		public List<Stmt> getPath() {
-			return Collections.unmodifiableList(this.path);
+			return this.path;
 		}
 		
 		public SourceContextAndPath extendPath(Stmt s) {
-			SourceContextAndPath scap = clone();
-			scap.path.add(s);
-			return scap;
+			return new SourceContextAndPath(getValue(), getStmt(), path.append(s));
 		}
 		
 		@Override
@@ -138,9 +154,8 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		
 		@Override
 		public SourceContextAndPath clone() {
-			SourceContextAndPath scap = new SourceContextAndPath(getValue(), getStmt());
-			scap.path.clear();
-			scap.path.addAll(this.path);
+			// The path is immutable, so we can share it
+			SourceContextAndPath scap = new SourceContextAndPath(getValue(), getStmt(), path);
 			assert scap.equals(this);
 			return scap;
 		}
@@ -157,13 +172,15 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 	private final AccessPath accessPath;
 	
 	private Abstraction predecessor = null;
+	/**
+	 * The abstractions that have been merged into this one at join points.
+	 * Only few abstractions ever get neighbors, so the set is only created
+	 * on demand. It lives and dies with the abstraction graph of the run.
+	 */
 	private Set<Abstraction> neighbors = null;
 	private Stmt currentStmt = null;
 	
 	private SourceContext sourceContext = null;
-
-	// only used in path generation
-	private Set<SourceContextAndPath> pathCache = null;
 	
 	/**
 	 * Unit/Stmt which activates the taint when the abstraction passes it
@@ -183,17 +200,17 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 
 	/**
 	 * The postdominators we need to pass in order to leave the current conditional
-	 * branch. Do not use the synchronized Stack class here to avoid deadlocks.
+	 * branch. The stack is immutable, so it can be shared between abstractions.
 	 */
-	private final List<UnitContainer> postdominators = new ArrayList<UnitContainer>();
+	private PostdominatorStack postdominators = PostdominatorStack.EMPTY;
 	
 	private final boolean flowSensitiveAliasing;
 	
 	public Abstraction(Value taint, Value currentVal, Stmt currentStmt,
 			boolean exceptionThrown, boolean isActive, Unit activationUnit,
 			boolean flowSensitiveAliasing){
-		this.sourceContext = new SourceContext(currentVal, currentStmt);
-		this.accessPath = new AccessPath(taint);
+		this.sourceContext = shareSourceContext(new SourceContext(currentVal, currentStmt));
+		this.accessPath = shareAccessPath(new AccessPath(taint));
 		
 		if (flowSensitiveAliasing)
 			this.activationUnit = activationUnit;
@@ -208,7 +225,6 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 			this.isActive = true;
 		
 		this.flowSensitiveAliasing = flowSensitiveAliasing;
-		this.neighbors = null;
 	}
 
 	/**
@@ -231,15 +247,46 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 			
 			isActive = original.isActive;
 			
-			postdominators.addAll(original.postdominators);
-			assert this.postdominators.equals(original.postdominators);
+			postdominators = original.postdominators;
 			
 			flowSensitiveAliasing = original.flowSensitiveAliasing;
 			assert flowSensitiveAliasing || this.activationUnit == null;
 			assert this.isActive || flowSensitiveAliasing;
 		}
-		accessPath = p;
-		neighbors = null;
+		accessPath = shareAccessPath(p);
+	}
+	
+	/**
+	 * Sets the pool to be used for sharing equal parts of abstractions
+	 * @param pool The pool to be used for sharing equal parts of abstractions,
+	 * null to disable sharing
+	 */
+	public static void setFactSharingPool(IFactSharingPool pool) {
+		sharingPool = pool;
+	}
+	
+	/**
+	 * Gets the pool that is used for sharing equal parts of abstractions
+	 * @return The pool that is used for sharing equal parts of abstractions,
+	 * null if sharing is disabled
+	 */
+	public static IFactSharingPool getFactSharingPool() {
+		return sharingPool;
+	}
+	
+	private static AccessPath shareAccessPath(AccessPath ap) {
+		IFactSharingPool pool = sharingPool;
+		return pool == null ? ap : pool.shareAccessPath(ap);
+	}
+	
+	private static SourceContext shareSourceContext(SourceContext sc) {
+		IFactSharingPool pool = sharingPool;
+		return pool == null ? sc : pool.shareSourceContext(sc);
+	}
+	
+	private static PostdominatorStack sharePostdominators(PostdominatorStack postdominators) {
+		IFactSharingPool pool = sharingPool;
+		return pool == null ? postdominators : pool.sharePostdominators(postdominators);
 	}
 	
 	public final Abstraction deriveInactiveAbstraction(){
@@ -252,7 +299,7 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 
 		Abstraction a = deriveNewAbstractionMutable(accessPath, null);
 		a.isActive = false;
-		a.postdominators.clear();
+		a.postdominators = PostdominatorStack.EMPTY;
 		return a;
 	}
 
@@ -271,7 +318,7 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		abs.currentStmt = currentStmt;
 		
 		if (!abs.getAccessPath().isEmpty())
-			abs.postdominators.clear();
+			abs.postdominators = PostdominatorStack.EMPTY;
 		
 		abs.sourceContext = null;
 		return abs;
@@ -334,69 +381,125 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 	}
 		
 	/**
-	 * Gets the path of statements from the source to the current statement
-	 * with which this abstraction is associated. If this path is ambiguous,
-	 * a single path is selected randomly.
-	 * @return The path from the source to the current statement
+	 * Node in the search for a path from a source to the current abstraction
+	 * 
+	 * @author Steven Arzt
 	 */
-	public Set<SourceContextAndPath> getPaths() {
-		Runtime.getRuntime().gc();
-		return getPaths(true, this);
+	private static class PathNode {
+		private final Abstraction abstraction;
+		private final PathNode next;
+		private final Stmt stmt;
+		private final int length;
+		
+		/**
+		 * Creates a new node in the path search
+		 * @param abstraction The abstraction at this node
+		 * @param next The node from which this node has been reached, i.e.
+		 * the next node on the way to the sink
+		 * @param stmt The statement that lies between this node and the next
+		 * node, null if there is none
+		 */
+		public PathNode(Abstraction abstraction, PathNode next, Stmt stmt) {
+			this.abstraction = abstraction;
+			this.next = next;
+			this.stmt = stmt;
+			this.length = next == null ? 0 : next.length + (stmt == null ? 0 : 1);
+		}
 	}
 	
 	/**
-	 * Gets the path of statements from the source to the current statement
-	 * with which this abstraction is associated. If this path is ambiguous,
-	 * a single path is selected randomly.
-	 * @return The path from the source to the current statement
+	 * Gets the sources from which this abstraction has been derived. The graph
+	 * of predecessors and neighbors is traversed iteratively, so long
+	 * derivation chains cannot overflow the stack.
+	 * This method must only be called once the data flow analysis has
+	 * finished.
+	 * @return The sources from which this abstraction has been derived
 	 */
-	public Set<SourceContextAndPath> getSources() {
-		Runtime.getRuntime().gc();
-		return getPaths(false, this);
+	public Set<SourceContext> getSources() {
+		Set<SourceContext> sources = new HashSet<SourceContext>();
+		Set<Abstraction> visited = Sets.newIdentityHashSet();
+		List<Abstraction> worklist = new ArrayList<Abstraction>();
+		
+		visited.add(this);
+		worklist.add(this);
+		while (!worklist.isEmpty()) {
+			Abstraction abs = worklist.remove(worklist.size() - 1);
+			if (abs.sourceContext != null) {
+				sources.add(abs.sourceContext);
+				continue;
+			}
+			
+			if (abs.predecessor != null && visited.add(abs.predecessor))
+				worklist.add(abs.predecessor);
+			if (abs.neighbors != null)
+				for (Abstraction nb : abs.neighbors)
+					if (visited.add(nb))
+						worklist.add(nb);
+		}
+		return sources;
 	}
 	
-	private Abstraction sinkAbs = null;
-	
 	/**
-	 * Gets the path of statements from the source to the current statement
-	 * with which this abstraction is associated. If this path is ambiguous,
-	 * a single path is selected randomly.
-	 * @return The path from the source to the current statement
+	 * Reconstructs a path of statements from the given source to the current
+	 * statement with which this abstraction is associated. If there are
+	 * multiple such paths, a shortest one is returned. Moving to a neighbor
+	 * or to a predecessor without a statement does not add a statement to
+	 * the path, so the search is a 0-1 breadth first search: such steps are
+	 * explored before all others, and a node is only settled once it is
+	 * taken from the worklist with its shortest distance. The search is iterative and does not allocate any path
+	 * objects for the nodes it merely visits.
+	 * @param source The source for which to reconstruct the path
+	 * @param maxLength The maximum number of statements on the path, not
+	 * counting the source statement
+	 * @return The path from the given source to the current statement, or
+	 * null if no such path with at most the given length exists
 	 */
-	private Set<SourceContextAndPath> getPaths(boolean reconstructPaths, Abstraction flagAbs) {
-		if (pathCache != null && sinkAbs == flagAbs)
-			return Collections.unmodifiableSet(pathCache);
-
-		if (sinkAbs == flagAbs)
-			return Collections.emptySet();
-		sinkAbs = flagAbs;
-		
-		if (sourceContext != null) {
-			// Construct the path root
-			SourceContextAndPath sourceAndPath = new SourceContextAndPath
-					(sourceContext.value, sourceContext.stmt);
-			pathCache = Collections.singleton(sourceAndPath);
-			
-			// Sources may not have neighbors
-			assert neighbors == null;
-			assert predecessor == null;
-		}
-		else {
-			this.pathCache = Sets.newHashSet();
-			
-			for (SourceContextAndPath curScap : predecessor.getPaths(reconstructPaths, flagAbs)) {
-				SourceContextAndPath extendedPath = (currentStmt == null || !reconstructPaths)
-						? curScap : curScap.extendPath(currentStmt);
-				pathCache.add(extendedPath);
+	public SourceContextAndPath getPath(SourceContext source, int maxLength) {
+		Set<Abstraction> visited = Sets.newIdentityHashSet();
+		Deque<PathNode> worklist = new ArrayDeque<PathNode>();
+		
+		worklist.add(new PathNode(this, null, null));
+		while (!worklist.isEmpty()) {
+			PathNode node = worklist.poll();
+			Abstraction abs = node.abstraction;
+			if (!visited.add(abs))
+				continue;
+			if (abs.sourceContext != null) {
+				if (abs.sourceContext.equals(source))
+					return buildPath(node);
+				continue;
 			}
 			
-			if (neighbors != null)
-				for (Abstraction nb : neighbors)
-					pathCache.addAll(nb.getPaths(reconstructPaths, flagAbs));
+			if (abs.predecessor != null && !visited.contains(abs.predecessor)) {
+				PathNode predNode = new PathNode(abs.predecessor, node, abs.currentStmt);
+				if (predNode.length <= maxLength) {
+					if (abs.currentStmt == null)
+						worklist.addFirst(predNode);
+					else
+						worklist.addLast(predNode);
+				}
+			}
+			if (abs.neighbors != null)
+				for (Abstraction nb : abs.neighbors)
+					if (!visited.contains(nb))
+						worklist.addFirst(new PathNode(nb, node, null));
 		}
-		
-		assert pathCache != null;
-		return Collections.unmodifiableSet(pathCache);
+		return null;
+	}
+	
+	/**
+	 * Builds the path that starts at the given source node and follows the
+	 * search nodes back to the abstraction at which the search started
+	 * @param sourceNode The node containing the source abstraction
+	 * @return The path from the source to the start of the search
+	 */
+	private static SourceContextAndPath buildPath(PathNode sourceNode) {
+		SourceContext sc = sourceNode.abstraction.sourceContext;
+		SourceContextAndPath scap = new SourceContextAndPath(sc.getValue(), sc.getStmt());
+		for (PathNode node = sourceNode; node.next != null; node = node.next)
+			if (node.stmt != null)
+				scap = scap.extendPath(node.stmt);
+		return scap;
 	}
 	
 	public boolean isAbstractionActive(){
@@ -447,7 +550,7 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 				(AccessPath.getEmptyAccessPath(), conditionalUnit);
 		// TODO
 //		abs.activationUnit = null;
-		abs.postdominators.add(0, postdom);
+		abs.postdominators = sharePostdominators(postdominators.push(postdom));
 		abs.isActive = true;
 		return abs;
 	}
@@ -462,7 +565,7 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		
 		// Postdominators are only kept intraprocedurally in order to not
 		// mess up the summary functions with caller-side information
-		abs.postdominators.clear();
+		abs.postdominators = PostdominatorStack.EMPTY;
 
 		return abs;
 	}
@@ -473,14 +576,12 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		
 		Abstraction abs = clone();
 		abs.sourceContext = null;
-		abs.postdominators.remove(0);
+		abs.postdominators = postdominators.pop();
 		return abs;
 	}
 	
 	public UnitContainer getTopPostdominator() {
-		if (this.postdominators.isEmpty())
-			return null;
-		return this.postdominators.get(0);
+		return this.postdominators.peek();
 	}
 	
 	public boolean isTopPostdominator(Unit u) {
@@ -506,7 +607,6 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		Abstraction abs = new Abstraction(accessPath, this);
 		abs.predecessor = this;
 		abs.currentStmt = predStmt;
-		abs.neighbors = null;
 		
 		assert abs.equals(this);
 		return abs;
@@ -519,12 +619,20 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 		if (obj == null || !(obj instanceof Abstraction))
 			return false;
 		Abstraction other = (Abstraction) obj;
-		if (accessPath == null) {
-			if (other.accessPath != null)
-				return false;
-		} else if (!accessPath.equals(other.accessPath))
+		
+		// If both hash codes are already known, they must match
+		if (this.hashCode != 0 && other.hashCode != 0 && this.hashCode != other.hashCode)
 			return false;
 		
+		// If the access paths are shared, we can avoid the deep comparison
+		if (accessPath != other.accessPath) {
+			if (accessPath == null) {
+				if (other.accessPath != null)
+					return false;
+			} else if (!accessPath.equals(other.accessPath))
+				return false;
+		}
+		
 		return localEquals(other);
 	}
 	
@@ -537,11 +645,13 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 	 */
 	private boolean localEquals(Abstraction other) {
 		// deliberately ignore prevAbs
-		if (sourceContext == null) {
-			if (other.sourceContext != null)
+		if (sourceContext != other.sourceContext) {
+			if (sourceContext == null) {
+				if (other.sourceContext != null)
+					return false;
+			} else if (!sourceContext.equals(other.sourceContext))
 				return false;
-		} else if (!sourceContext.equals(other.sourceContext))
-			return false;
+		}
 		if (activationUnit == null) {
 			if (other.activationUnit != null)
 				return false;
@@ -551,7 +661,8 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 			return false;
 		if(this.isActive != other.isActive)
 			return false;
-		if(!this.postdominators.equals(other.postdominators))
+		if(this.postdominators != other.postdominators
+				&& !this.postdominators.equals(other.postdominators))
 			return false;
 		if(this.flowSensitiveAliasing != other.flowSensitiveAliasing)
 			return false;
@@ -560,23 +671,26 @@ public class Abstraction implements Cloneable, LinkedNode<Abstraction> {
 	
 	@Override
 	public int hashCode() {
-		if (this.hashCode != 0)
-			return hashCode;
+		// Racy single-assignment: all threads compute the same value from
+		// fields that no longer change once the abstraction is published,
+		// so we do not need a monitor
+		int h = this.hashCode;
+		if (h != 0)
+			return h;
 
 		final int prime = 31;
-		synchronized (this) { 
-			this.hashCode = 1;
-	
-			// deliberately ignore prevAbs
-			this.hashCode = prime * this.hashCode + ((sourceContext == null) ? 0 : sourceContext.hashCode());
-			this.hashCode = prime * this.hashCode + ((accessPath == null) ? 0 : accessPath.hashCode());
-			this.hashCode = prime * this.hashCode + ((activationUnit == null) ? 0 : activationUnit.hashCode());
-			this.hashCode = prime * this.hashCode + (exceptionThrown ? 1231 : 1237);
-			this.hashCode = prime * this.hashCode + (isActive ? 1231 : 1237);
-			this.hashCode = prime * this.hashCode + postdominators.hashCode();
-			this.hashCode = prime * this.hashCode + (flowSensitiveAliasing ? 1231 : 1237);
-			return hashCode;
-		}
+		h = 1;
+
+		// deliberately ignore prevAbs
+		h = prime * h + ((sourceContext == null) ? 0 : sourceContext.hashCode());
+		h = prime * h + ((accessPath == null) ? 0 : accessPath.hashCode());
+		h = prime * h + ((activationUnit == null) ? 0 : activationUnit.hashCode());
+		h = prime * h + (exceptionThrown ? 1231 : 1237);
+		h = prime * h + (isActive ? 1231 : 1237);
+		h = prime * h + postdominators.hashCode();
+		h = prime * h + (flowSensitiveAliasing ? 1231 : 1237);
+		this.hashCode = h;
+		return h;
 	}
 	
 	/**
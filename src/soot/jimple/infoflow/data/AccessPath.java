@@ -35,7 +35,7 @@ public class AccessPath implements Cloneable {
 	 * list of fields, either they are based on a concrete @value or they indicate a static field
 	 */
 	private final SootField[] fields;
-	private int hashCode = 0;
+	private final int hashCode;
 
 	/**
 	 * The empty access path denotes a code region depending on a tainted
@@ -48,6 +48,7 @@ public class AccessPath implements Cloneable {
 	private AccessPath() {
 		this.value = null;
 		this.fields = null;
+		this.hashCode = computeHashCode();
 	}
 
 	public AccessPath(Value val){
@@ -87,11 +88,13 @@ public class AccessPath implements Cloneable {
 		if (appendingFields != null)
 			for (int i = (baseField == null ? 0 : 1); i < this.fields.length; i++)
 				this.fields[i] = appendingFields[i - (baseField == null ? 0 : 1)];
+		this.hashCode = computeHashCode();
 	}
 	
 	public AccessPath(SootField staticfield){
 		this.fields = new SootField[] { staticfield };
 		value = null;
+		this.hashCode = computeHashCode();
 	}
 	
 	public AccessPath(Value base, SootField field){
@@ -140,22 +143,36 @@ public class AccessPath implements Cloneable {
 		return fields;
 	}
 	
+	/**
+	 * Gets the field at the given position in this access path
+	 * @param idx The position of the field, must be between 0 and
+	 * getFieldCount() - 1
+	 * @return The field at the given position
+	 */
+	public SootField getField(int idx) {
+		return fields[idx];
+	}
+	
 	public int getFieldCount() {
 		return fields == null ? 0 : fields.length;
 	}
 	
+	/**
+	 * Computes the hash code of this access path. Since access paths are
+	 * immutable, this is done once in the constructor.
+	 * @return The hash code of this access path
+	 */
+	private int computeHashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((fields == null) ? 0 : Arrays.hashCode(fields));
+		result = prime * result + ((value == null) ? 0 : value.hashCode());
+		return result;
+	}
+	
 	@Override
 	public int hashCode() {
-		if (hashCode != 0)
-			return hashCode;
-		
-		synchronized (this) {
-			final int prime = 31;
-			this.hashCode = 1;
-			this.hashCode = prime * this.hashCode + ((fields == null) ? 0 : Arrays.hashCode(fields));
-			this.hashCode = prime * this.hashCode + ((value == null) ? 0 : value.hashCode());
-			return this.hashCode;
-		}
+		return this.hashCode;
 	}
 
 	@Override
@@ -166,6 +183,8 @@ public class AccessPath implements Cloneable {
 			return false;
 		
 		AccessPath other = (AccessPath) obj;
+		if (this.hashCode != other.hashCode)
+			return false;
 		if (!Arrays.equals(fields, other.fields))
 			return false;
 		if (value == null) {
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soot.jimple.infoflow.data.Abstraction.SourceContext;
+
+/**
+ * Fact sharing pool based on concurrent hash maps. Every object that is
+ * handed to this pool is kept until the pool is cleared.
+ *
+ * @author Steven Arzt
+ */
+public class ConcurrentFactSharingPool implements IFactSharingPool {
+
+	private final ConcurrentMap<AccessPath, AccessPath> accessPaths =
+			new ConcurrentHashMap<AccessPath, AccessPath>();
+	private final ConcurrentMap<SourceContext, SourceContext> sourceContexts =
+			new ConcurrentHashMap<SourceContext, SourceContext>();
+	private final ConcurrentMap<PostdominatorStack, PostdominatorStack> postdominators =
+			new ConcurrentHashMap<PostdominatorStack, PostdominatorStack>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	@Override
+	public AccessPath shareAccessPath(AccessPath ap) {
+		return share(accessPaths, ap);
+	}
+
+	@Override
+	public SourceContext shareSourceContext(SourceContext sc) {
+		return share(sourceContexts, sc);
+	}
+
+	@Override
+	public PostdominatorStack sharePostdominators(PostdominatorStack postdominators) {
+		return share(this.postdominators, postdominators);
+	}
+
+	/**
+	 * Gets the canonical instance of the given object from the given map
+	 * @param pool The map in which to look for the canonical instance
+	 * @param obj The object for which to get the canonical instance
+	 * @return The canonical instance of the given object
+	 */
+	private <T> T share(ConcurrentMap<T, T> pool, T obj) {
+		if (obj == null)
+			return null;
+		T existing = pool.putIfAbsent(obj, obj);
+		if (existing == null) {
+			misses.incrementAndGet();
+			return obj;
+		}
+		hits.incrementAndGet();
+		return existing;
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public void clear() {
+		accessPaths.clear();
+		sourceContexts.clear();
+		postdominators.clear();
+	}
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.data;
+
+import soot.jimple.infoflow.data.Abstraction.SourceContext;
+
+/**
+ * Common interface for pools that share structurally equal parts of taint
+ * abstractions, so that equal facts are represented by the same objects.
+ * Implementations must be thread-safe as they are called concurrently from
+ * all solver threads.
+ *
+ * @author Steven Arzt
+ */
+public interface IFactSharingPool {
+
+	/**
+	 * Gets the canonical instance of the given access path
+	 * @param ap The access path to share
+	 * @return An access path that is equal to the given one. If no such access
+	 * path has been seen before, the given object is returned.
+	 */
+	public AccessPath shareAccessPath(AccessPath ap);
+
+	/**
+	 * Gets the canonical instance of the given source context
+	 * @param sc The source context to share
+	 * @return A source context that is equal to the given one. If no such
+	 * source context has been seen before, the given object is returned.
+	 */
+	public SourceContext shareSourceContext(SourceContext sc);
+
+	/**
+	 * Gets the canonical instance of the given stack of postdominators
+	 * @param postdominators The stack of postdominators to share
+	 * @return A stack that is equal to the given one. If no such stack has
+	 * been seen before, the given object is returned.
+	 */
+	public PostdominatorStack sharePostdominators(PostdominatorStack postdominators);
+
+	/**
+	 * Gets the number of requests for which an existing object could be
+	 * returned
+	 * @return The number of hits in this pool
+	 */
+	public long getHits();
+
+	/**
+	 * Gets the number of requests for which no equal object was available yet
+	 * @return The number of misses in this pool
+	 */
+	public long getMisses();
+
+	/**
+	 * Removes all objects from this pool
+	 */
+	public void clear();
+
+}
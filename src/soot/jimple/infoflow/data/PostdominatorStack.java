@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.data;
+
+import soot.jimple.infoflow.heros.IInfoflowCFG.UnitContainer;
+
+/**
+ * Immutable stack of the postdominators an abstraction needs to pass in order
+ * to leave the conditional branches it is in. Pushing a postdominator creates
+ * a new stack that shares the existing one as its tail. All empty stacks are
+ * represented by the single {@link #EMPTY} instance.
+ *
+ * @author Steven Arzt
+ */
+public final class PostdominatorStack {
+
+	/**
+	 * The empty stack
+	 */
+	public static final PostdominatorStack EMPTY = new PostdominatorStack();
+
+	private final UnitContainer top;
+	private final PostdominatorStack tail;
+	private final int size;
+	private final int hashCode;
+
+	private PostdominatorStack() {
+		this.top = null;
+		this.tail = null;
+		this.size = 0;
+		this.hashCode = 1;
+	}
+
+	private PostdominatorStack(UnitContainer top, PostdominatorStack tail) {
+		this.top = top;
+		this.tail = tail;
+		this.size = tail.size + 1;
+		this.hashCode = 31 * tail.hashCode + top.hashCode();
+	}
+
+	/**
+	 * Creates a new stack with the given postdominator on top of this stack.
+	 * This stack is not modified.
+	 * @param postdom The postdominator to push
+	 * @return The new stack
+	 */
+	public PostdominatorStack push(UnitContainer postdom) {
+		assert postdom != null;
+		return new PostdominatorStack(postdom, this);
+	}
+
+	/**
+	 * Gets the stack without its topmost postdominator
+	 * @return The stack without its topmost postdominator, or the empty stack
+	 * if this stack is already empty
+	 */
+	public PostdominatorStack pop() {
+		return this.tail == null ? EMPTY : this.tail;
+	}
+
+	/**
+	 * Gets the topmost postdominator on this stack
+	 * @return The topmost postdominator on this stack, or null if the stack
+	 * is empty
+	 */
+	public UnitContainer peek() {
+		return this.top;
+	}
+
+	/**
+	 * Gets whether this stack is empty
+	 * @return True if this stack is empty, otherwise false
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Gets the number of postdominators on this stack
+	 * @return The number of postdominators on this stack
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Checks whether the given postdominator is on this stack
+	 * @param postdom The postdominator to look for
+	 * @return True if the given postdominator is on this stack, otherwise
+	 * false
+	 */
+	public boolean contains(UnitContainer postdom) {
+		for (PostdominatorStack stack = this; stack.size > 0; stack = stack.tail)
+			if (stack.top.equals(postdom))
+				return true;
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || !(obj instanceof PostdominatorStack))
+			return false;
+		PostdominatorStack other = (PostdominatorStack) obj;
+		if (this.size != other.size || this.hashCode != other.hashCode)
+			return false;
+
+		// Stop as soon as both stacks share the same tail
+		PostdominatorStack s1 = this;
+		PostdominatorStack s2 = other;
+		while (s1 != s2) {
+			if (!s1.top.equals(s2.top))
+				return false;
+			s1 = s1.tail;
+			s2 = s2.tail;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (PostdominatorStack stack = this; stack.size > 0; stack = stack.tail) {
+			if (stack != this)
+				sb.append(", ");
+			sb.append(stack.top);
+		}
+		return sb.append("]").toString();
+	}
+
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import soot.jimple.Stmt;
+
+/**
+ * Immutable path of statements. Every path only stores its last statement
+ * and a pointer to the path it has been extended from, so all paths that
+ * have been derived from the same prefix share that prefix in memory and
+ * extending a path takes constant time.
+ *
+ * @author Steven Arzt
+ */
+public class StmtPath extends AbstractList<Stmt> {
+
+	private final StmtPath prefix;
+	private final Stmt stmt;
+	private final int size;
+
+	/**
+	 * Creates a new path that consists of a single statement
+	 * @param stmt The statement on the path
+	 */
+	public StmtPath(Stmt stmt) {
+		this(null, stmt);
+	}
+
+	private StmtPath(StmtPath prefix, Stmt stmt) {
+		this.prefix = prefix;
+		this.stmt = stmt;
+		this.size = prefix == null ? 1 : prefix.size + 1;
+	}
+
+	/**
+	 * Creates a new path that consists of this path followed by the given
+	 * statement. This path is not modified.
+	 * @param s The statement to append
+	 * @return The extended path
+	 */
+	public StmtPath append(Stmt s) {
+		return new StmtPath(this, s);
+	}
+
+	/**
+	 * Gets the path without its last statement
+	 * @return The path without its last statement, or null if this path
+	 * consists of a single statement
+	 */
+	public StmtPath getPrefix() {
+		return this.prefix;
+	}
+
+	/**
+	 * Gets the last statement on this path
+	 * @return The last statement on this path
+	 */
+	public Stmt getLast() {
+		return this.stmt;
+	}
+
+	@Override
+	public Stmt get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		StmtPath path = this;
+		for (int i = size - 1; i > index; i--)
+			path = path.prefix;
+		return path.stmt;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Stmt[] stmts = new Stmt[size];
+		int i = size;
+		for (StmtPath path = this; path != null; path = path.prefix)
+			stmts[--i] = path.stmt;
+		return stmts;
+	}
+
+	@Override
+	public Iterator<Stmt> iterator() {
+		// Walking the prefix pointers yields the statements in reverse order,
+		// so we take a snapshot instead of calling get() for every index
+		return Arrays.asList((Stmt[]) toArray()).iterator();
+	}
+
+}
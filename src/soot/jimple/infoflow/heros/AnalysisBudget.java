@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget for a data flow analysis in terms of wall-clock time, propagated
+ * path edges and heap usage. The budget is shared by the forward and the
+ * backward solver. Once it is exhausted, the solvers stop propagating new
+ * edges, so that the analysis winds down and the results found so far can
+ * be collected.
+ *
+ * @author Steven Arzt
+ */
+public class AnalysisBudget {
+
+	/**
+	 * The heap usage is only checked every so many edges, since querying the
+	 * runtime is comparatively expensive
+	 */
+	private static final int HEAP_CHECK_INTERVAL = 4096;
+
+	/**
+	 * The deadline is only checked every so many edges
+	 */
+	private static final int TIME_CHECK_INTERVAL = 64;
+
+	private final long maxTime;
+	private final long maxEdges;
+	private final long maxHeap;
+
+	private final AtomicLong edgeCount = new AtomicLong(0);
+	private volatile long deadline = Long.MAX_VALUE;
+	private volatile String exhaustedReason = null;
+
+	/**
+	 * Creates a new analysis budget
+	 * @param maxTime The maximum wall-clock time in milliseconds, or -1 for
+	 * no time limit
+	 * @param maxEdges The maximum number of path edges to propagate, or -1
+	 * for no limit on the number of edges
+	 * @param maxHeap The maximum number of bytes in use on the heap, or -1
+	 * for no limit on the heap usage
+	 */
+	public AnalysisBudget(long maxTime, long maxEdges, long maxHeap) {
+		this.maxTime = maxTime;
+		this.maxEdges = maxEdges;
+		this.maxHeap = maxHeap;
+	}
+
+	/**
+	 * Starts the clock for the time limit
+	 */
+	public void start() {
+		if (maxTime >= 0)
+			this.deadline = System.nanoTime() + maxTime * 1000000;
+	}
+
+	/**
+	 * Accounts for a new path edge and checks whether the budget allows for
+	 * it to be propagated
+	 * @return True if the edge may be propagated, false if the budget is
+	 * exhausted
+	 */
+	public boolean tryPropagate() {
+		if (exhaustedReason != null)
+			return false;
+
+		long edges = edgeCount.incrementAndGet();
+		if (maxEdges >= 0 && edges > maxEdges)
+			return exhaust("more than " + maxEdges + " path edges");
+		if (maxTime >= 0 && edges % TIME_CHECK_INTERVAL == 0
+				&& System.nanoTime() - deadline > 0)
+			return exhaust("more than " + maxTime + " ms");
+		if (maxHeap >= 0 && edges % HEAP_CHECK_INTERVAL == 0) {
+			Runtime runtime = Runtime.getRuntime();
+			if (runtime.totalMemory() - runtime.freeMemory() > maxHeap)
+				return exhaust("more than " + maxHeap + " bytes of heap");
+		}
+		return true;
+	}
+
+	private boolean exhaust(String reason) {
+		if (exhaustedReason == null)
+			exhaustedReason = reason;
+		return false;
+	}
+
+	/**
+	 * Gets whether the budget has been exhausted
+	 * @return True if the budget has been exhausted, otherwise false
+	 */
+	public boolean isExhausted() {
+		return exhaustedReason != null;
+	}
+
+	/**
+	 * Gets the reason for which the budget has been exhausted
+	 * @return A description of the limit that has been exceeded, or null if
+	 * the budget has not been exhausted
+	 */
+	public String getExhaustedReason() {
+		return exhaustedReason;
+	}
+
+	/**
+	 * Gets the time that is left until the time limit is reached
+	 * @return The remaining time in milliseconds, 0 if the time limit has
+	 * already been reached, or -1 if there is no time limit
+	 */
+	public long getRemainingTime() {
+		if (maxTime < 0)
+			return -1;
+		return Math.max(0, (deadline - System.nanoTime()) / 1000000);
+	}
+
+	/**
+	 * Gets the number of path edges propagated so far
+	 * @return The number of path edges propagated so far
+	 */
+	public long getEdgeCount() {
+		return edgeCount.get();
+	}
+
+}
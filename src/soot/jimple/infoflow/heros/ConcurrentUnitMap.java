@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import soot.Unit;
+
+/**
+ * Concurrent map from units to values that stores the values in an array
+ * indexed by the unit ids of an interprocedural control flow graph. Units
+ * that have not been numbered by the control flow graph are kept in an
+ * ordinary concurrent hash map.
+ *
+ * @author Steven Arzt
+ *
+ * @param <V> The type of the values in the map
+ */
+public class ConcurrentUnitMap<V> {
+
+	private final IInfoflowCFG icfg;
+	private final AtomicReferenceArray<V> values;
+	private final ConcurrentMap<Unit, V> unnumbered = new ConcurrentHashMap<Unit, V>();
+
+	/**
+	 * Creates a new map for the units of the given control flow graph
+	 * @param icfg The control flow graph that assigns the unit ids. If this
+	 * parameter is null, all units are kept in a hash map.
+	 */
+	public ConcurrentUnitMap(IInfoflowCFG icfg) {
+		this.icfg = icfg;
+		this.values = new AtomicReferenceArray<V>(icfg == null ? 0 : icfg.getUnitCount());
+	}
+
+	private int idOf(Unit u) {
+		return icfg == null ? -1 : icfg.getUnitId(u);
+	}
+
+	/**
+	 * Gets the value associated with the given unit
+	 * @param u The unit for which to get the value
+	 * @return The value associated with the given unit, or null if there is
+	 * no such value
+	 */
+	public V get(Unit u) {
+		int id = idOf(u);
+		if (id >= 0)
+			return values.get(id);
+		return unnumbered.get(u);
+	}
+
+	/**
+	 * Associates the given value with the given unit unless the unit is
+	 * already associated with some value
+	 * @param u The unit with which to associate the value
+	 * @param value The value to associate with the unit
+	 * @return The value that was previously associated with the unit, or null
+	 * if the given value has been stored
+	 */
+	public V putIfAbsent(Unit u, V value) {
+		int id = idOf(u);
+		if (id >= 0)
+			while (true) {
+				if (values.compareAndSet(id, null, value))
+					return null;
+				// The slot may have been cleared since the failed attempt
+				V oldValue = values.get(id);
+				if (oldValue != null)
+					return oldValue;
+			}
+		return unnumbered.putIfAbsent(u, value);
+	}
+
+	/**
+	 * Removes all values from this map
+	 */
+	public void clear() {
+		for (int i = 0; i < values.length(); i++)
+			values.set(i, null);
+		unnumbered.clear();
+	}
+
+}
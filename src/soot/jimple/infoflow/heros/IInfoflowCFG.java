@@ -9,7 +9,9 @@ import soot.Unit;
 import soot.jimple.Stmt;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 public interface IInfoflowCFG extends BiDiInterproceduralCFG<Unit,SootMethod> {
 
@@ -93,8 +95,61 @@ public interface IInfoflowCFG extends BiDiInterproceduralCFG<Unit,SootMethod> {
      */
     public UnitContainer getPostdominatorOf(Unit u);
 
+    /**
+     * Computes the postdominators of all statements in the given methods in
+     * advance. The methods are processed concurrently on the given executor.
+     * @param methods The methods for which to compute the postdominators
+     * @param executor The executor on which to compute the postdominators
+     */
+    public void precomputePostdominators(Collection<SootMethod> methods, ExecutorService executor);
+
     public Set<?> getReadVariables(SootMethod caller, Stmt inv);
 
     public Set<?> getWriteVariables(SootMethod caller, Stmt inv);
 
+    /**
+     * Gets the id of the given unit. Ids are dense, i.e., all units reachable
+     * when the graph was built have ids between 0 and getUnitCount() - 1.
+     * @param u The unit for which to get the id
+     * @return The id of the given unit, or -1 if the unit has not been
+     * numbered
+     */
+    public int getUnitId(Unit u);
+
+    /**
+     * Gets the unit with the given id
+     * @param id The id for which to get the unit
+     * @return The unit with the given id, or null if there is no such unit
+     */
+    public Unit getUnitById(int id);
+
+    /**
+     * Gets the number of units that have been numbered in this graph
+     * @return The number of units that have been numbered in this graph
+     */
+    public int getUnitCount();
+
+    /**
+     * Gets the id of the given method. Ids are dense, i.e., all methods
+     * reachable when the graph was built have ids between 0 and
+     * getMethodCount() - 1.
+     * @param m The method for which to get the id
+     * @return The id of the given method, or -1 if the method has not been
+     * numbered
+     */
+    public int getMethodId(SootMethod m);
+
+    /**
+     * Gets the method with the given id
+     * @param id The id for which to get the method
+     * @return The method with the given id, or null if there is no such method
+     */
+    public SootMethod getMethodById(int id);
+
+    /**
+     * Gets the number of methods that have been numbered in this graph
+     * @return The number of methods that have been numbered in this graph
+     */
+    public int getMethodCount();
+
 }
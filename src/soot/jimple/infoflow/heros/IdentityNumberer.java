@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense integer ids starting at zero to objects based on their
+ * identity. The lookup table uses open addressing over plain arrays, so
+ * there are neither entry objects nor boxed integers. Numbering is not
+ * thread-safe, but lookups are once all objects have been added and the
+ * numberer has been safely published.
+ *
+ * @author Steven Arzt
+ *
+ * @param <E> The type of the objects to number
+ */
+public class IdentityNumberer<E> {
+
+	private Object[] keys;
+	private int[] ids;
+	private Object[] elements;
+	private int size = 0;
+
+	public IdentityNumberer() {
+		this(1024);
+	}
+
+	public IdentityNumberer(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2)
+			capacity <<= 1;
+		keys = new Object[capacity];
+		ids = new int[capacity];
+		elements = new Object[Math.max(expectedSize, 16)];
+	}
+
+	/**
+	 * Gets the slot for the given object in the lookup table. This is either
+	 * the slot in which the object is stored, or the free slot at which it
+	 * would have to be inserted.
+	 * @param obj The object to look for
+	 * @return The slot for the given object
+	 */
+	private int slotOf(Object obj) {
+		int mask = keys.length - 1;
+		int h = System.identityHashCode(obj);
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (keys[slot] != null && keys[slot] != obj)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Assigns an id to the given object if it does not have one yet
+	 * @param obj The object to number
+	 * @return The id of the given object
+	 */
+	public int add(E obj) {
+		int slot = slotOf(obj);
+		if (keys[slot] != null)
+			return ids[slot];
+
+		if (size == elements.length)
+			elements = Arrays.copyOf(elements, size * 2);
+		elements[size] = obj;
+		keys[slot] = obj;
+		ids[slot] = size;
+		size++;
+
+		// Keep the load factor of the lookup table below 1/2
+		if (size * 2 > keys.length)
+			rehash();
+		return size - 1;
+	}
+
+	private void rehash() {
+		keys = new Object[keys.length * 2];
+		ids = new int[keys.length];
+		for (int i = 0; i < size; i++) {
+			int slot = slotOf(elements[i]);
+			keys[slot] = elements[i];
+			ids[slot] = i;
+		}
+	}
+
+	/**
+	 * Gets the id of the given object
+	 * @param obj The object for which to get the id
+	 * @return The id of the given object, or -1 if the object has not been
+	 * numbered
+	 */
+	public int getId(Object obj) {
+		if (obj == null)
+			return -1;
+		int slot = slotOf(obj);
+		return keys[slot] == null ? -1 : ids[slot];
+	}
+
+	/**
+	 * Gets the object with the given id
+	 * @param id The id for which to get the object
+	 * @return The object with the given id, or null if there is no such object
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int id) {
+		if (id < 0 || id >= size)
+			return null;
+		return (E) elements[id];
+	}
+
+	/**
+	 * Gets the number of objects that have been numbered
+	 * @return The number of objects that have been numbered. All ids are
+	 * smaller than this value.
+	 */
+	public int size() {
+		return size;
+	}
+
+}
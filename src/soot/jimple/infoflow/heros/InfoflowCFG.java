@@ -10,9 +10,11 @@
  ******************************************************************************/
 package soot.jimple.infoflow.heros;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import heros.solver.IDESolver;
+import com.google.common.cache.Weigher;
+import soot.MethodOrMethodContext;
 import soot.Scene;
 import soot.SootMethod;
 import soot.Unit;
@@ -23,8 +25,17 @@ import soot.jimple.toolkits.pointer.SideEffectAnalysis;
 import soot.toolkits.graph.DirectedGraph;
 import soot.toolkits.graph.MHGPostDominatorsFinder;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Interprocedural control-flow graph for the infoflow solver
@@ -33,28 +44,101 @@ import java.util.Set;
  */
 public class InfoflowCFG extends JimpleBasedBiDiICFG implements IInfoflowCFG {
 
-	protected final LoadingCache<Unit,UnitContainer> unitToPostdominator =
-			IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Unit,UnitContainer>() {
-				@Override
-				public UnitContainer load(Unit unit) throws Exception {
-					SootMethod method = getMethodOf(unit);
-					DirectedGraph<Unit> graph = bodyToUnitGraph.getUnchecked(method.getActiveBody());
-					MHGPostDominatorsFinder<Unit> postdominatorFinder = new MHGPostDominatorsFinder<Unit>(graph);
-					Unit postdom = postdominatorFinder.getImmediateDominator(unit);
-					if (postdom == null)
-						return new UnitContainer(method);
-					else
-						return new UnitContainer(postdom);
-				}
-			});
+	/**
+	 * The minimum number of statements for which the postdominators are
+	 * kept in memory. Whole methods are evicted once the limit is reached.
+	 * The limit grows with the program, so that the postdominators of all
+	 * reachable statements fit.
+	 */
+	private static final long MIN_CACHED_POSTDOMINATORS = 1000000;
+	
+	/**
+	 * The immediate postdominators of all statements by method. The
+	 * postdominator tree of a method is computed once for all of its
+	 * statements.
+	 */
+	protected final LoadingCache<SootMethod, Map<Unit, UnitContainer>> methodToPostdominators;
 	
 	protected final SideEffectAnalysis sideEffectAnalysis;
 	
+	protected final IdentityNumberer<SootMethod> methodNumberer = new IdentityNumberer<SootMethod>();
+	protected final IdentityNumberer<Unit> unitNumberer = new IdentityNumberer<Unit>(64 * 1024);
+	
 	public InfoflowCFG() {
 		super();
 		
 		this.sideEffectAnalysis = new SideEffectAnalysis
 				(Scene.v().getPointsToAnalysis(), Scene.v().getCallGraph());
+		
+		// Number all reachable methods and their statements. The order is
+		// deterministic, so all graphs built on the same scene agree on the ids.
+		for (Iterator<MethodOrMethodContext> iter = Scene.v().getReachableMethods().listener();
+				iter.hasNext(); ) {
+			SootMethod m = iter.next().method();
+			methodNumberer.add(m);
+			if (m.hasActiveBody())
+				for (Unit u : m.getActiveBody().getUnits())
+					unitNumberer.add(u);
+		}
+		
+		// A single segment, since Guava splits the weight evenly between its
+		// segments and a skewed segment would evict while others have room.
+		// Loading happens outside the segment lock, so this does not
+		// serialize the computation.
+		this.methodToPostdominators = CacheBuilder.newBuilder().concurrencyLevel(1)
+			.maximumWeight(Math.max(MIN_CACHED_POSTDOMINATORS, getUnitCount()))
+			.weigher(new Weigher<SootMethod, Map<Unit, UnitContainer>>() {
+				@Override
+				public int weigh(SootMethod method, Map<Unit, UnitContainer> postdominators) {
+					return postdominators.size();
+				}
+			}).build(new CacheLoader<SootMethod, Map<Unit, UnitContainer>>() {
+				@Override
+				public Map<Unit, UnitContainer> load(SootMethod method) throws Exception {
+					DirectedGraph<Unit> graph = bodyToUnitGraph.getUnchecked(method.getActiveBody());
+					MHGPostDominatorsFinder<Unit> postdominatorFinder = new MHGPostDominatorsFinder<Unit>(graph);
+					UnitContainer methodContainer = new UnitContainer(method);
+					Map<Unit, UnitContainer> postdominators = new HashMap<Unit, UnitContainer>(graph.size());
+					for (Unit unit : graph) {
+						Unit postdom = postdominatorFinder.getImmediateDominator(unit);
+						if (postdom == null)
+							postdominators.put(unit, methodContainer);
+						else
+							postdominators.put(unit, new UnitContainer(postdom));
+					}
+					return postdominators;
+				}
+			});
+	}
+	
+	@Override
+	public int getUnitId(Unit u) {
+		return unitNumberer.getId(u);
+	}
+	
+	@Override
+	public Unit getUnitById(int id) {
+		return unitNumberer.get(id);
+	}
+	
+	@Override
+	public int getUnitCount() {
+		return unitNumberer.size();
+	}
+	
+	@Override
+	public int getMethodId(SootMethod m) {
+		return methodNumberer.getId(m);
+	}
+	
+	@Override
+	public SootMethod getMethodById(int id) {
+		return methodNumberer.get(id);
+	}
+	
+	@Override
+	public int getMethodCount() {
+		return methodNumberer.size();
 	}
 
 	/**
@@ -63,8 +147,39 @@ public class InfoflowCFG extends JimpleBasedBiDiICFG implements IInfoflowCFG {
 	 * @param u The unit for which to get the postdominator.
 	 * @return The postdominator of the given unit
 	 */
+	@Override
 	public UnitContainer getPostdominatorOf(Unit u) {
-		return unitToPostdominator.getUnchecked(u);
+		SootMethod method = getMethodOf(u);
+		UnitContainer postdom = methodToPostdominators.getUnchecked(method).get(u);
+		return postdom == null ? new UnitContainer(method) : postdom;
+	}
+	
+	@Override
+	public void precomputePostdominators(Collection<SootMethod> methods, ExecutorService executor) {
+		List<Future<?>> futures = new ArrayList<Future<?>>(methods.size());
+		for (final SootMethod m : methods) {
+			if (!m.hasActiveBody())
+				continue;
+			futures.add(executor.submit(new Runnable() {
+				
+				@Override
+				public void run() {
+					methodToPostdominators.getUnchecked(m);
+				}
+				
+			}));
+		}
+		
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		}
+		catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted while computing postdominators", e);
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException("Could not compute postdominators", e.getCause());
+		}
 	}
 	
 	public Set<?> getReadVariables(SootMethod caller, Stmt inv) {
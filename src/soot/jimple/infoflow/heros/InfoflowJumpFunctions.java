@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+
+/**
+ * Index over the jump functions of an {@link InfoflowSolver}. Since all edge
+ * functions in our IFDS setting are identities, we only need to record which
+ * path edges <d1, n, d2> exist. Lookups never block, insertions only
+ * synchronize on the small per-fact tables they modify.
+ *
+ * @author Steven Arzt
+ */
+public class InfoflowJumpFunctions {
+
+	/**
+	 * Maps a target statement n and a target fact d2 to all source facts d1
+	 * for which a path edge <d1, n, d2> exists. The value stored for d1 is the
+	 * d2 instance with which the edge was first registered.
+	 */
+	private final ConcurrentUnitMap<ConcurrentMap<Abstraction, ConcurrentMap<Abstraction, Abstraction>>> reverseIndex;
+	
+	/**
+	 * Creates a new index over the path edges in the given control flow graph
+	 * @param icfg The control flow graph whose unit ids shall be used for
+	 * indexing the target statements
+	 */
+	public InfoflowJumpFunctions(IInfoflowCFG icfg) {
+		this.reverseIndex = new ConcurrentUnitMap<ConcurrentMap<Abstraction,
+				ConcurrentMap<Abstraction, Abstraction>>>(icfg);
+	}
+
+	/**
+	 * Registers the path edge <d1, target, d2>
+	 * @param d1 The fact at the start point of the method
+	 * @param target The target statement of the path edge
+	 * @param d2 The fact at the target statement
+	 * @return Null if the path edge is new, otherwise the instance of d2 with
+	 * which the edge has been registered before
+	 */
+	public Abstraction addFunction(Abstraction d1, Unit target, Abstraction d2) {
+		ConcurrentMap<Abstraction, ConcurrentMap<Abstraction, Abstraction>> factMap = reverseIndex.get(target);
+		if (factMap == null) {
+			factMap = new ConcurrentHashMap<Abstraction, ConcurrentMap<Abstraction, Abstraction>>(4, 0.75f, 2);
+			ConcurrentMap<Abstraction, ConcurrentMap<Abstraction, Abstraction>> oldMap =
+					reverseIndex.putIfAbsent(target, factMap);
+			if (oldMap != null)
+				factMap = oldMap;
+		}
+
+		ConcurrentMap<Abstraction, Abstraction> sourceMap = factMap.get(d2);
+		if (sourceMap == null) {
+			sourceMap = new ConcurrentHashMap<Abstraction, Abstraction>(2, 0.75f, 1);
+			ConcurrentMap<Abstraction, Abstraction> oldMap = factMap.putIfAbsent(d2, sourceMap);
+			if (oldMap != null)
+				sourceMap = oldMap;
+		}
+		return sourceMap.putIfAbsent(d1, d2);
+	}
+
+	/**
+	 * Checks whether the path edge <d1, target, d2> has already been
+	 * registered
+	 * @param d1 The fact at the start point of the method
+	 * @param target The target statement of the path edge
+	 * @param d2 The fact at the target statement
+	 * @return True if the given path edge has already been registered,
+	 * otherwise false
+	 */
+	public boolean containsFunction(Abstraction d1, Unit target, Abstraction d2) {
+		ConcurrentMap<Abstraction, ConcurrentMap<Abstraction, Abstraction>> factMap = reverseIndex.get(target);
+		if (factMap == null)
+			return false;
+		ConcurrentMap<Abstraction, Abstraction> sourceMap = factMap.get(d2);
+		return sourceMap != null && sourceMap.containsKey(d1);
+	}
+
+	/**
+	 * Gets all facts d1 for which there is a path edge <d1, target, d2>. The
+	 * returned set is a live view that reflects concurrent insertions.
+	 * @param target The target statement of the path edges
+	 * @param d2 The fact at the target statement
+	 * @return The set of facts at the start points of the method from which
+	 * the given fact is reachable at the given statement
+	 */
+	public Set<Abstraction> reverseLookup(Unit target, Abstraction d2) {
+		ConcurrentMap<Abstraction, ConcurrentMap<Abstraction, Abstraction>> factMap = reverseIndex.get(target);
+		if (factMap == null)
+			return Collections.emptySet();
+		ConcurrentMap<Abstraction, Abstraction> sourceMap = factMap.get(d2);
+		if (sourceMap == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(sourceMap.keySet());
+	}
+
+	/**
+	 * Removes all path edges from this index
+	 */
+	public void clear() {
+		reverseIndex.clear();
+	}
+
+}
@@ -16,14 +16,28 @@ import heros.InterproceduralCFG;
 import heros.edgefunc.EdgeIdentity;
 import heros.solver.CountingThreadPoolExecutor;
 import heros.solver.IFDSSolver;
+import heros.solver.Pair;
 import heros.solver.PathEdge;
 import heros.solver.PathTrackingIFDSSolver;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.Table.Cell;
 
 import soot.SootMethod;
 import soot.Unit;
+import soot.jimple.infoflow.aliasing.AliasQueryCache;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
 /**
@@ -33,9 +47,86 @@ import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
  */
 public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, SootMethod, InterproceduralCFG<Unit, SootMethod>> {
 
+	/**
+	 * Lock-free index over the path edges of this solver. It mirrors the jump
+	 * functions of the superclass so that lookups need not lock jumpFn.
+	 */
+	private final InfoflowJumpFunctions jumpFunctions;
+	
+	private final AbstractInfoflowProblem problem;
+	
+	private AnalysisBudget budget = null;
+	
+	private SinkReachability edgePriorities = null;
+	private PriorityTaskQueue priorityQueue = null;
+	
+	private boolean enableEdgeBatching = false;
+	private final ConcurrentMap<Unit, EdgeBatch> edgeBatches = new ConcurrentHashMap<Unit, EdgeBatch>();
+	private final AtomicInteger batchedEdgeCount = new AtomicInteger(0);
+	private final AtomicInteger batchCount = new AtomicInteger(0);
+	
+	/**
+	 * Task that processes all pending intra-procedural path edges with the
+	 * same target statement. Edges that arrive while the task is running
+	 * are processed by the same task, so that there is at most one task per
+	 * statement in the queue.
+	 */
+	private class EdgeBatch implements Runnable {
+		
+		private final Unit target;
+		private List<PathEdge<Unit, Abstraction>> edges = new ArrayList<PathEdge<Unit, Abstraction>>();
+		private boolean scheduled = false;
+		
+		public EdgeBatch(Unit target) {
+			this.target = target;
+		}
+		
+		/**
+		 * Adds a path edge to this batch
+		 * @param edge The path edge to add
+		 * @return True if the batch needs to be scheduled, false if a task for
+		 * this batch is already pending
+		 */
+		public synchronized boolean add(PathEdge<Unit, Abstraction> edge) {
+			edges.add(edge);
+			if (scheduled)
+				return false;
+			scheduled = true;
+			return true;
+		}
+		
+		/**
+		 * Removes all pending edges from this batch
+		 * @return The pending edges, or null if there are none left. In the
+		 * latter case, the batch must be scheduled again for new edges.
+		 */
+		private synchronized List<PathEdge<Unit, Abstraction>> drain() {
+			if (edges.isEmpty()) {
+				scheduled = false;
+				return null;
+			}
+			List<PathEdge<Unit, Abstraction>> pending = edges;
+			edges = new ArrayList<PathEdge<Unit, Abstraction>>();
+			return pending;
+		}
+		
+		@Override
+		public void run() {
+			List<PathEdge<Unit, Abstraction>> pending;
+			while ((pending = drain()) != null) {
+				batchCount.incrementAndGet();
+				batchedEdgeCount.addAndGet(pending.size());
+				processNormalFlows(target, pending);
+			}
+		}
+		
+	}
+	
 	public InfoflowSolver(AbstractInfoflowProblem problem, CountingThreadPoolExecutor executor) {
 		super(problem);
+		this.problem = problem;
 		this.executor = executor;
+		this.jumpFunctions = new InfoflowJumpFunctions(problem.interproceduralCFG());
 		problem.setSolver(this);		
 	}
 	
@@ -48,7 +139,7 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 		// We are generating a fact out of thin air here. If we have an
 		// edge <d1,n,d2>, there need not necessarily be a jump function
 		// to <n,d2>.
-		if (!jumpFn.forwardLookup(edge.factAtSource(), edge.getTarget()).containsKey(edge.factAtTarget())) {
+		if (!jumpFunctions.containsFunction(edge.factAtSource(), edge.getTarget(), edge.factAtTarget())) {
 			propagate(edge.factAtSource(), edge.getTarget(), edge.factAtTarget(),
 					EdgeIdentity.<IFDSSolver.BinaryDomain>v(), null, false);
 			return true;
@@ -57,21 +148,34 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 	}
 	
 	public void injectContext(InfoflowSolver otherSolver, SootMethod callee, Abstraction d3, Unit callSite, Abstraction d2) {
+		injectContext(otherSolver, callee, d3, callSite, d2, null);
+	}
+	
+	/**
+	 * Injects the calling context of a callee entered by the backward solver
+	 * into this solver
+	 * @param otherSolver The backward solver
+	 * @param callee The callee entered by the backward solver
+	 * @param d3 The abstraction at the start of the callee
+	 * @param callSite The call site
+	 * @param d2 The abstraction at the call site
+	 * @param aliasQueries The cache that maps the contexts of cached alias
+	 * searches in the backward solver back to the contexts in this solver,
+	 * or null if alias searches are not cached
+	 */
+	public void injectContext(InfoflowSolver otherSolver, SootMethod callee, Abstraction d3, Unit callSite,
+			Abstraction d2, AliasQueryCache aliasQueries) {
 		synchronized (incoming) {
 			for (Unit sP : icfg.getStartPointsOf(callee))
 				addIncoming(sP, d3, callSite, d2);
 		}
 		
-		// First, get a list of the other solver's jump functions.
-		// Then release the lock on otherSolver.jumpFn before doing
-		// anything that locks our own jumpFn.
-		final Set<Abstraction> otherAbstractions;
-		synchronized (otherSolver.jumpFn) {
-			otherAbstractions = new HashSet<Abstraction>
-					(otherSolver.jumpFn.reverseLookup(callSite, d2).keySet());
-		}
-		for (Abstraction d1: otherAbstractions)
-			if (!d1.getAccessPath().isEmpty() && !d1.getAccessPath().isStaticFieldRef())
+		// The other solver's index can be read without locking. The view is
+		// weakly consistent, so concurrent insertions do not disturb us.
+		for (Abstraction d1: otherSolver.jumpFunctions.reverseLookup(callSite, d2))
+			if (aliasQueries != null)
+				aliasQueries.injectCallSite(this, d1, callSite, d2);
+			else if (!d1.getAccessPath().isEmpty() && !d1.getAccessPath().isStaticFieldRef())
 				processEdge(new PathEdge<Unit, Abstraction>(d1, callSite, d2));
 	}
 	
@@ -85,9 +189,7 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 				if (d4 == zeroValue)
 					d1s.add(d4);
 				else
-					synchronized (jumpFn) {
-						d1s.addAll(jumpFn.reverseLookup(callSite, d4).keySet());
-					}
+					d1s.addAll(jumpFunctions.reverseLookup(callSite, d4));
 			
 			return ((SolverReturnFlowFunction) retFunction).computeTargets(d2, d1s);
 		}
@@ -122,6 +224,97 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 			return flowFunction.computeTargets(d2);		
 	}
 
+	@Override
+	protected void scheduleEdgeProcessing(PathEdge<Unit, Abstraction> edge) {
+		// Intra-procedural edges are collected per target statement
+		EdgeBatch batch = null;
+		if (enableEdgeBatching && isBatchable(edge.getTarget())) {
+			batch = getEdgeBatch(edge.getTarget());
+			propagationCount++;
+			if (!batch.add(edge))
+				return;
+		}
+		
+		// The executor only sees the task, so we need to announce the
+		// priority of the edge beforehand
+		if (priorityQueue != null)
+			priorityQueue.setPriorityHint(getPriority(edge.getTarget()));
+		try {
+			if (batch == null)
+				super.scheduleEdgeProcessing(edge);
+			else if (!executor.isTerminating())
+				executor.execute(batch);
+		}
+		finally {
+			if (priorityQueue != null)
+				priorityQueue.clearPriorityHint();
+		}
+	}
+	
+	/**
+	 * Checks whether the path edges reaching the given statement can be
+	 * processed in batches. This is the case for all statements that are
+	 * neither calls nor exits, since only the normal flow function applies
+	 * to them.
+	 * @param n The target statement of the path edges
+	 * @return True if the path edges can be processed in batches, otherwise
+	 * false
+	 */
+	private boolean isBatchable(Unit n) {
+		return !icfg.isCallStmt(n) && !icfg.isExitStmt(n);
+	}
+	
+	/**
+	 * Gets the batch of pending path edges for the given target statement,
+	 * creating it if necessary
+	 * @param n The target statement
+	 * @return The batch of pending path edges for the given target statement
+	 */
+	private EdgeBatch getEdgeBatch(Unit n) {
+		EdgeBatch batch = edgeBatches.get(n);
+		if (batch == null) {
+			batch = new EdgeBatch(n);
+			EdgeBatch oldBatch = edgeBatches.putIfAbsent(n, batch);
+			if (oldBatch != null)
+				batch = oldBatch;
+		}
+		return batch;
+	}
+	
+	/**
+	 * Applies the normal flow functions to a batch of path edges with the
+	 * same target statement. Every flow function is only looked up once for
+	 * the whole batch.
+	 * @param n The common target statement of the path edges
+	 * @param edges The path edges to process
+	 */
+	private void processNormalFlows(Unit n, List<PathEdge<Unit, Abstraction>> edges) {
+		for (Unit m : icfg.getSuccsOf(n)) {
+			FlowFunction<Abstraction> flowFunction = flowFunctions.getNormalFlowFunction(n, m);
+			for (PathEdge<Unit, Abstraction> edge : edges) {
+				flowFunctionApplicationCount++;
+				Abstraction d1 = edge.factAtSource();
+				for (Abstraction d3 : computeNormalFlowFunction(flowFunction, d1, edge.factAtTarget()))
+					propagate(d1, m, d3, EdgeIdentity.<BinaryDomain>v(), null, false);
+			}
+		}
+	}
+	
+	/**
+	 * Computes the scheduling priority of a path edge. Edges that reach the
+	 * end of a method come first, since they complete the summaries on which
+	 * the callers are waiting. All other edges are ordered by their distance
+	 * to the nearest sink.
+	 * @param target The target statement of the path edge
+	 * @return The priority of the edge, lower values are processed first
+	 */
+	private int getPriority(Unit target) {
+		if (icfg.isExitStmt(target))
+			return 0;
+		int distance = edgePriorities.getSinkDistance(target);
+		return distance < 0 ? Integer.MAX_VALUE : distance + 1;
+	}
+
 	@Override
 	protected void propagate(Abstraction sourceVal, Unit target, Abstraction targetVal, EdgeFunction<BinaryDomain> f,
 			/* deliberately exposed to clients */ Unit relatedCallSite,
@@ -141,8 +334,135 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 				}
 			}
 		*/
-		if (!noProp)
-			super.propagate(sourceVal, target, targetVal, f, relatedCallSite, isUnbalancedReturn);
+		if (noProp)
+			return;
+		
+		// Taints at statements from which no sink can be reached will never
+		// show up in the results
+		SinkReachability sinkReachability = problem.getSinkReachability();
+		if (sinkReachability != null && !sinkReachability.canReachSink(target))
+			return;
+		
+		// If we already have this path edge, we only need to record the
+		// alternative predecessor for the path reconstruction. This saves
+		// us the locks in the superclasses for the common case of
+		// re-discovered edges.
+		Abstraction existingTargetVal = jumpFunctions.addFunction(sourceVal, target, targetVal);
+		if (existingTargetVal != null) {
+			if (existingTargetVal != targetVal)
+				existingTargetVal.addNeighbor(targetVal);
+			return;
+		}
+		
+		// Once the budget is exhausted, we let the analysis wind down
+		if (budget != null && !budget.tryPropagate())
+			return;
+		super.propagate(sourceVal, target, targetVal, f, relatedCallSite, isUnbalancedReturn);
+	}
+
+	/**
+	 * Waits until the executor of this solver has run out of tasks and all of
+	 * its worker threads have terminated. Since the executor is shared between
+	 * the forward and the backward solver, this covers both of them. Tasks
+	 * only ever get submitted by other tasks, so the task counter of the
+	 * executor cannot drop to zero while there is still work left.
+	 * @param timeout The maximum time to wait for the worker threads to
+	 * terminate once all tasks have been completed
+	 * @param unit The unit of the timeout argument
+	 * @return True if the executor has terminated, false if the timeout
+	 * elapsed before
+	 * @throws InterruptedException Thrown if the current thread was
+	 * interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		executor.awaitCompletion();
+		if (executor.getException() != null)
+			throw new RuntimeException("There were exceptions during the IFDS analysis",
+					executor.getException());
+		
+		// No new tasks can be created anymore, so the worker threads are
+		// free to leave as soon as they are done with their bookkeeping
+		executor.shutdown();
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Sets the budget for this solver. Once the budget is exhausted, no new
+	 * path edges are propagated.
+	 * @param budget The budget for this solver, or null to run the solver
+	 * to completion
+	 */
+	public void setBudget(AnalysisBudget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Sets the distances to the sinks by which path edges shall be
+	 * prioritized. This only has an effect if the executor of this solver
+	 * uses a {@link PriorityTaskQueue}.
+	 * @param edgePriorities The distances to the sinks, or null to schedule
+	 * all edges with the same priority
+	 */
+	public void setEdgePriorities(SinkReachability edgePriorities) {
+		this.edgePriorities = edgePriorities;
+		if (edgePriorities != null && executor.getQueue() instanceof PriorityTaskQueue)
+			this.priorityQueue = (PriorityTaskQueue) executor.getQueue();
+		else
+			this.priorityQueue = null;
+	}
+
+	/**
+	 * Sets whether path edges with the same target statement shall be
+	 * processed together in a single task. This only applies to statements
+	 * that are neither calls nor exits and saves the scheduling overhead for
+	 * the large number of intra-procedural edges.
+	 * @param enableEdgeBatching True if path edges shall be processed in
+	 * batches, otherwise false
+	 */
+	public void setEnableEdgeBatching(boolean enableEdgeBatching) {
+		this.enableEdgeBatching = enableEdgeBatching;
+	}
+
+	/**
+	 * Gets the number of path edges this solver has processed in batches
+	 * @return The number of path edges processed in batches
+	 */
+	public int getBatchedEdgeCount() {
+		return this.batchedEdgeCount.get();
+	}
+
+	/**
+	 * Gets the number of batches this solver has processed. Every batch
+	 * contains at least one path edge.
+	 * @return The number of batches processed
+	 */
+	public int getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	/**
+	 * Gets the end summaries that have been computed for the given method.
+	 * This must only be called after the solver has finished and before it
+	 * has been cleaned up.
+	 * @param m The method for which to get the end summaries
+	 * @return A mapping from the facts at the start points of the method to
+	 * the exit statements and the facts that reach them
+	 */
+	public Map<Abstraction, Set<Pair<Unit, Abstraction>>> getEndSummaries(SootMethod m) {
+		Map<Abstraction, Set<Pair<Unit, Abstraction>>> summaries =
+				new HashMap<Abstraction, Set<Pair<Unit, Abstraction>>>();
+		for (Unit sP : icfg.getStartPointsOf(m))
+			for (Entry<Abstraction, Table<Unit, Abstraction, EdgeFunction<BinaryDomain>>> entry
+					: endSummary.row(sP).entrySet()) {
+				Set<Pair<Unit, Abstraction>> exits = summaries.get(entry.getKey());
+				if (exits == null) {
+					exits = new HashSet<Pair<Unit, Abstraction>>();
+					summaries.put(entry.getKey(), exits);
+				}
+				for (Cell<Unit, Abstraction, EdgeFunction<BinaryDomain>> cell : entry.getValue().cellSet())
+					exits.add(new Pair<Unit, Abstraction>(cell.getRowKey(), cell.getColumnKey()));
+			}
+		return summaries;
 	}
 
 	/**
@@ -151,6 +471,8 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 	 */
 	public void cleanup() {
 		this.jumpFn.clear();
+		this.jumpFunctions.clear();
+		this.edgeBatches.clear();
 		this.incoming.clear();
 		this.endSummary.clear();
 		this.val.clear();
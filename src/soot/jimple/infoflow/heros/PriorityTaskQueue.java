@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task queue for a thread pool that hands out the tasks with the lowest
+ * priority value first. The thread pool only passes plain tasks to the
+ * queue, so the priority of the next task is announced beforehand by the
+ * submitting thread using {@link #setPriorityHint(int)}. Tasks without a
+ * hint get priority 0. Tasks with the same priority are handed out in the
+ * order in which they were submitted.
+ *
+ * @author Steven Arzt
+ */
+public class PriorityTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	/**
+	 * Task together with its priority and submission number
+	 */
+	private static class PrioritizedTask implements Comparable<PrioritizedTask> {
+
+		private final Runnable task;
+		private final int priority;
+		private final long sequence;
+
+		PrioritizedTask(Runnable task, int priority, long sequence) {
+			this.task = task;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask other) {
+			if (this.priority != other.priority)
+				return this.priority < other.priority ? -1 : 1;
+			if (this.sequence != other.sequence)
+				return this.sequence < other.sequence ? -1 : 1;
+			return 0;
+		}
+
+	}
+
+	private final PriorityBlockingQueue<PrioritizedTask> tasks = new PriorityBlockingQueue<PrioritizedTask>();
+	private final AtomicLong sequence = new AtomicLong(0);
+	private final ThreadLocal<Integer> priorityHint = new ThreadLocal<Integer>();
+
+	/**
+	 * Sets the priority for the next task that the current thread submits.
+	 * The hint only applies to a single task.
+	 * @param priority The priority of the next task. Lower values are
+	 * handed out first.
+	 */
+	public void setPriorityHint(int priority) {
+		this.priorityHint.set(priority);
+	}
+
+	/**
+	 * Removes the priority hint of the current thread
+	 */
+	public void clearPriorityHint() {
+		this.priorityHint.remove();
+	}
+
+	private Runnable unwrap(PrioritizedTask pt) {
+		return pt == null ? null : pt.task;
+	}
+
+	@Override
+	public boolean offer(Runnable r) {
+		if (r == null)
+			throw new NullPointerException();
+		Integer hint = priorityHint.get();
+		if (hint != null)
+			priorityHint.remove();
+		return tasks.offer(new PrioritizedTask(r, hint == null ? 0 : hint,
+				sequence.getAndIncrement()));
+	}
+
+	@Override
+	public void put(Runnable r) {
+		offer(r);
+	}
+
+	@Override
+	public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+		return offer(r);
+	}
+
+	@Override
+	public Runnable poll() {
+		return unwrap(tasks.poll());
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		return unwrap(tasks.take());
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return unwrap(tasks.poll(timeout, unit));
+	}
+
+	@Override
+	public Runnable peek() {
+		return unwrap(tasks.peek());
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		for (PrioritizedTask pt : tasks)
+			if (pt.task == o)
+				return tasks.remove(pt);
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return tasks.size();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		List<PrioritizedTask> drained = new ArrayList<PrioritizedTask>();
+		int count = tasks.drainTo(drained, maxElements);
+		for (PrioritizedTask pt : drained)
+			c.add(pt.task);
+		return count;
+	}
+
+	/**
+	 * Gets an iterator over a snapshot of the tasks in this queue
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		List<Runnable> snapshot = new ArrayList<Runnable>(tasks.size());
+		for (PrioritizedTask pt : tasks)
+			snapshot.add(pt.task);
+		return snapshot.iterator();
+	}
+
+}
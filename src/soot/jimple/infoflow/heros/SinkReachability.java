@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+import soot.SootMethod;
+import soot.Unit;
+
+/**
+ * Pre-analysis that computes which statements of the interprocedural control
+ * flow graph can reach a sink at all. A taint can only travel along the edges
+ * of the exploded supergraph, i.e., to the successors of a statement, into
+ * the callees of a call site, and from the end points of a method back to the
+ * return sites of its callers. If none of these paths leads to a sink, the
+ * taint can never be reported and need not be propagated. Since the set of
+ * statements that cannot reach a sink is closed under these edges, dropping
+ * taints at such statements does not change the results of the analysis.
+ *
+ * The analysis is context-insensitive: the end points of a method count as
+ * reaching a sink as soon as a single caller continues to a sink after the
+ * call. Callees that neither contain a sink nor return into such a context
+ * are thus skipped entirely, the caller's taints only flow over the
+ * call-to-return edge.
+ *
+ * Since the supergraph is walked breadth-first, the analysis also yields
+ * the number of supergraph edges between each statement and the nearest
+ * sink. This distance can be used to prioritize the taints that are most
+ * likely to produce a leak soon.
+ *
+ * @author Steven Arzt
+ */
+public class SinkReachability {
+
+	private final IInfoflowCFG icfg;
+
+	/**
+	 * The distance from each statement to the nearest sink by unit id, -1
+	 * for statements from which no sink can be reached
+	 */
+	private final int[] sinkDistances;
+	private int sinkReachingUnitCount = 0;
+
+	/**
+	 * Computes the statements from which one of the given sinks can be
+	 * reached
+	 * @param icfg The interprocedural control flow graph on which to run the
+	 * pre-analysis
+	 * @param sinks The sink statements
+	 */
+	public SinkReachability(IInfoflowCFG icfg, Collection<Unit> sinks) {
+		this.icfg = icfg;
+		this.sinkDistances = new int[icfg.getUnitCount()];
+		Arrays.fill(sinkDistances, -1);
+
+		// We walk the supergraph backwards starting at the sinks
+		Deque<Unit> worklist = new ArrayDeque<Unit>();
+		for (Unit sink : sinks)
+			mark(sink, 0, worklist);
+		while (!worklist.isEmpty()) {
+			Unit u = worklist.removeFirst();
+			int distance = sinkDistances[icfg.getUnitId(u)] + 1;
+			for (Unit pred : icfg.getPredsOf(u)) {
+				mark(pred, distance, worklist);
+
+				// If we reach a return site, the taint may also come out of
+				// the callee
+				if (icfg.isCallStmt(pred))
+					for (SootMethod callee : icfg.getCalleesOfCallAt(pred))
+						for (Unit ep : icfg.getEndPointsOf(callee))
+							mark(ep, distance, worklist);
+			}
+
+			// If we reach the start of a method, the taint may have been
+			// passed in by any of its callers
+			if (icfg.isStartPoint(u))
+				for (Unit callSite : icfg.getCallersOf(icfg.getMethodOf(u)))
+					mark(callSite, distance, worklist);
+		}
+	}
+
+	/**
+	 * Marks the given statement as reaching a sink and schedules it for
+	 * further processing if it has not been marked before
+	 * @param u The statement to mark
+	 * @param distance The distance from the statement to the nearest sink
+	 * @param worklist The worklist of statements still to be processed
+	 */
+	private void mark(Unit u, int distance, Deque<Unit> worklist) {
+		int id = icfg.getUnitId(u);
+		if (id >= 0 && id < sinkDistances.length && sinkDistances[id] < 0) {
+			sinkDistances[id] = distance;
+			sinkReachingUnitCount++;
+			worklist.add(u);
+		}
+	}
+
+	/**
+	 * Checks whether a sink can be reached from the given statement. Units
+	 * that were unknown when the control flow graph was built are
+	 * conservatively assumed to reach a sink.
+	 * @param u The statement to check
+	 * @return True if a taint at the given statement can reach a sink,
+	 * otherwise false
+	 */
+	public boolean canReachSink(Unit u) {
+		int id = icfg.getUnitId(u);
+		return id < 0 || id >= sinkDistances.length || sinkDistances[id] >= 0;
+	}
+
+	/**
+	 * Gets the number of supergraph edges between the given statement and
+	 * the nearest sink
+	 * @param u The statement for which to get the distance
+	 * @return The distance to the nearest sink, or -1 if no sink can be
+	 * reached or the statement is unknown
+	 */
+	public int getSinkDistance(Unit u) {
+		int id = icfg.getUnitId(u);
+		if (id < 0 || id >= sinkDistances.length)
+			return -1;
+		return sinkDistances[id];
+	}
+
+	/**
+	 * Checks whether a sink can be reached from inside the given method
+	 * @param m The method to check
+	 * @return True if a taint passed into the given method can reach a sink,
+	 * otherwise false
+	 */
+	public boolean canReachSink(SootMethod m) {
+		for (Unit sP : icfg.getStartPointsOf(m))
+			if (canReachSink(sP))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Gets the number of statements from which a sink can be reached
+	 * @return The number of statements from which a sink can be reached
+	 */
+	public int getSinkReachingUnitCount() {
+		return sinkReachingUnitCount;
+	}
+
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.heros;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Task queue for a thread pool that gives every worker thread its own deque.
+ * Tasks scheduled by a worker are put into its own deque and taken out again
+ * in LIFO order, so that the worker continues with the edges it has just
+ * produced while their data is still in the cache. Idle workers steal the
+ * oldest tasks from the other deques. Tasks scheduled by other threads go to
+ * a shared deque. Other than a single shared queue, the workers only contend
+ * when they steal.
+ *
+ * @author Steven Arzt
+ */
+public class WorkStealingTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	/**
+	 * Deque of a single thread. The owner works at the head, thieves at the
+	 * tail.
+	 */
+	private static class TaskDeque {
+
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		synchronized void push(Runnable r) {
+			tasks.addFirst(r);
+		}
+
+		synchronized Runnable pop() {
+			return tasks.pollFirst();
+		}
+
+		synchronized Runnable steal() {
+			return tasks.pollLast();
+		}
+
+		synchronized boolean remove(Object o) {
+			return tasks.remove(o);
+		}
+
+		synchronized void copyTo(List<Runnable> list) {
+			list.addAll(tasks);
+		}
+
+	}
+
+	private final TaskDeque sharedDeque = new TaskDeque();
+	private final List<TaskDeque> workerDeques = new CopyOnWriteArrayList<TaskDeque>();
+	private final ThreadLocal<TaskDeque> ownDeque = new ThreadLocal<TaskDeque>();
+
+	private final AtomicInteger size = new AtomicInteger(0);
+	private final AtomicInteger waiters = new AtomicInteger(0);
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+
+	/**
+	 * Gets the deque of the current worker thread, creating it if necessary
+	 * @return The deque of the current worker thread
+	 */
+	private TaskDeque getOwnDeque() {
+		TaskDeque deque = ownDeque.get();
+		if (deque == null) {
+			deque = new TaskDeque();
+			ownDeque.set(deque);
+			workerDeques.add(deque);
+		}
+		return deque;
+	}
+
+	/**
+	 * Takes a task from the own deque, the shared deque, or one of the other
+	 * workers' deques, in this order
+	 * @return The task, or null if no task could be found
+	 */
+	private Runnable tryTake() {
+		TaskDeque own = getOwnDeque();
+		Runnable r = own.pop();
+		if (r == null)
+			r = sharedDeque.steal();
+		if (r == null && size.get() > 0) {
+			// Start at a different victim in every thread
+			int numDeques = workerDeques.size();
+			int start = (int) (Thread.currentThread().getId() % Math.max(1, numDeques));
+			for (int i = 0; i < numDeques && r == null; i++) {
+				TaskDeque victim = workerDeques.get((start + i) % numDeques);
+				if (victim != own)
+					r = victim.steal();
+			}
+		}
+		if (r != null)
+			size.decrementAndGet();
+		return r;
+	}
+
+	@Override
+	public boolean offer(Runnable r) {
+		if (r == null)
+			throw new NullPointerException();
+		TaskDeque deque = ownDeque.get();
+		if (deque == null)
+			deque = sharedDeque;
+		deque.push(r);
+		size.incrementAndGet();
+
+		// Wake up an idle worker
+		if (waiters.get() > 0) {
+			lock.lock();
+			try {
+				notEmpty.signal();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void put(Runnable r) {
+		offer(r);
+	}
+
+	@Override
+	public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+		return offer(r);
+	}
+
+	@Override
+	public Runnable poll() {
+		return tryTake();
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		while (true) {
+			Runnable r = tryTake();
+			if (r != null)
+				return r;
+
+			lock.lockInterruptibly();
+			try {
+				waiters.incrementAndGet();
+				try {
+					while (size.get() == 0)
+						notEmpty.await();
+				}
+				finally {
+					waiters.decrementAndGet();
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		while (true) {
+			Runnable r = tryTake();
+			if (r != null)
+				return r;
+			if (nanos <= 0)
+				return null;
+
+			lock.lockInterruptibly();
+			try {
+				waiters.incrementAndGet();
+				try {
+					while (size.get() == 0 && nanos > 0)
+						nanos = notEmpty.awaitNanos(nanos);
+				}
+				finally {
+					waiters.decrementAndGet();
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		Iterator<Runnable> it = iterator();
+		return it.hasNext() ? it.next() : null;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		boolean removed = sharedDeque.remove(o);
+		for (int i = 0; i < workerDeques.size() && !removed; i++)
+			removed = workerDeques.get(i).remove(o);
+		if (removed)
+			size.decrementAndGet();
+		return removed;
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		int count = 0;
+		while (count < maxElements) {
+			Runnable r = tryTake();
+			if (r == null)
+				break;
+			c.add(r);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Gets an iterator over a snapshot of the tasks in this queue
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		List<Runnable> snapshot = new ArrayList<Runnable>(size.get());
+		sharedDeque.copyTo(snapshot);
+		for (TaskDeque deque : workerDeques)
+			deque.copyTo(snapshot);
+		return snapshot.iterator();
+	}
+
+}
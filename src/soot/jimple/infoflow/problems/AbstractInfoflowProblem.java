@@ -30,6 +30,7 @@ import soot.jimple.infoflow.handlers.TaintPropagationHandler;
 import soot.jimple.infoflow.heros.IInfoflowCFG;
 import soot.jimple.infoflow.heros.InfoflowCFG;
 import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.infoflow.heros.SinkReachability;
 import soot.jimple.infoflow.nativ.DefaultNativeCallHandler;
 import soot.jimple.infoflow.nativ.NativeCallHandler;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
@@ -61,6 +62,8 @@ public abstract class AbstractInfoflowProblem extends DefaultJimpleIFDSTabulatio
 	
 	protected boolean stopAfterFirstFlow = false;
 	
+	protected SinkReachability sinkReachability = null;
+	
 	protected Set<TaintPropagationHandler> taintPropagationHandlers = new HashSet<TaintPropagationHandler>();
 	
 	public AbstractInfoflowProblem(InterproceduralCFG<Unit, SootMethod> icfg) {
@@ -98,6 +101,26 @@ public abstract class AbstractInfoflowProblem extends DefaultJimpleIFDSTabulatio
 		this.stopAfterFirstFlow = stopAfterFirstFlow;
 	}
 		
+	/**
+	 * Sets the pre-computed information on which statements can reach a sink.
+	 * If this information is available, taints are no longer propagated to
+	 * statements and into callees from which no sink can be reached.
+	 * @param sinkReachability The information on which statements can reach
+	 * a sink, or null to propagate taints everywhere
+	 */
+	public void setSinkReachability(SinkReachability sinkReachability) {
+		this.sinkReachability = sinkReachability;
+	}
+	
+	/**
+	 * Gets the pre-computed information on which statements can reach a sink
+	 * @return The information on which statements can reach a sink, or null
+	 * if taints shall be propagated everywhere
+	 */
+	public SinkReachability getSinkReachability() {
+		return this.sinkReachability;
+	}
+		
 	/**
 	 * Sets whether the solver shall consider implicit flows.
 	 * @param enableImplicitFlows True if implicit flows shall be considered,
@@ -39,6 +39,7 @@ import soot.jimple.InvokeExpr;
 import soot.jimple.ReturnStmt;
 import soot.jimple.StaticFieldRef;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.aliasing.AliasQueryCache;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.heros.BackwardsInfoflowCFG;
 import soot.jimple.infoflow.heros.InfoflowSolver;
@@ -52,6 +53,7 @@ import soot.jimple.infoflow.util.BaseSelector;
  */
 public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 	private InfoflowSolver fSolver;
+	private AliasQueryCache aliasQueries = null;
 
 	public void setTaintWrapper(ITaintPropagationWrapper wrapper) {
 		taintWrapper = wrapper;
@@ -69,6 +71,30 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 		fSolver = forwardSolver;
 	}
 	
+	/**
+	 * Sets the cache through which the aliases found by this problem are
+	 * passed back to the forward solver. If a cache is set, the alias
+	 * searches must be started with the contexts handed out by the cache.
+	 * @param aliasQueries The cache for the alias searches, or null to
+	 * inject the aliases into the forward solver directly
+	 */
+	public void setAliasQueryCache(AliasQueryCache aliasQueries) {
+		this.aliasQueries = aliasQueries;
+	}
+	
+	/**
+	 * Injects an alias into the forward solver
+	 * @param d1 The context of the alias in this problem
+	 * @param u The statement at which to inject the alias
+	 * @param fabs The forward abstraction for the alias
+	 */
+	private void injectAlias(Abstraction d1, Unit u, Abstraction fabs) {
+		if (aliasQueries == null)
+			fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+		else
+			aliasQueries.injectAlias(fSolver, d1, u, fabs);
+	}
+
 	@Override
 	public FlowFunctions<Unit, Abstraction, SootMethod> createFlowFunctionsFactory() {
 		return new FlowFunctions<Unit, Abstraction, SootMethod>() {
@@ -108,7 +134,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 					if (triggerInaktiveTaintOrReverseFlow(leftValue, source)) {
 						Abstraction fabs = getForwardAbstraction(source);
 						for (Unit u : interproceduralCFG().getPredsOf(defStmt))
-							fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+							injectAlias(d1, u, fabs);
 					}
 				}
 				
@@ -220,7 +246,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 						if (newAbs.getAccessPath().isStaticFieldRef() && newAbs != source) {
 							Abstraction fabs = getForwardAbstraction(newAbs);
 							for (Unit u : interproceduralCFG().getPredsOf(defStmt))
-								fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+								injectAlias(d1, u, fabs);
 						}
 
 				return res;
@@ -291,7 +317,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 											&& triggerInaktiveTaintOrReverseFlow(defStmt.getLeftOp(), newAbs)) {
 										Abstraction fabs = getForwardAbstraction(newAbs);
 										for (Unit u : interproceduralCFG().getPredsOf(defStmt))
-											fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+											injectAlias(d1, u, fabs);
 									}
  							}
 
@@ -392,7 +418,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 						
 						for (Abstraction abs : res)
 							if (!abs.getAccessPath().isEmpty())
-								fSolver.injectContext(solver, dest, abs, src, source);
+								fSolver.injectContext(solver, dest, abs, src, source, aliasQueries);
 					
 						return res;
 					}
@@ -419,7 +445,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 								//terminates here, but we have to start a forward pass to consider all method calls:
 								Abstraction fabs = getForwardAbstraction(source);
 								for (Unit u : interproceduralCFG().getPredsOf(iStmt))
-									fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+									injectAlias(d1, u, fabs);
 								return Collections.emptySet();
 							}
 							else {
@@ -431,7 +457,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 											&& triggerInaktiveTaintOrReverseFlow(defStmt.getLeftOp(), source)) {
 										Abstraction fabs = getForwardAbstraction(source);
 										for (Unit u : interproceduralCFG().getPredsOf(defStmt))
-											fSolver.processEdge(new PathEdge<Unit, Abstraction>(d1, u, fabs));
+											injectAlias(d1, u, fabs);
 									}
 	 							}
 								return Collections.singleton(source);
@@ -19,9 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,7 +48,7 @@ import soot.jimple.infoflow.InfoflowResults;
 import soot.jimple.infoflow.aliasing.IAliasingStrategy;
 import soot.jimple.infoflow.aliasing.ImplicitFlowAliasStrategy;
 import soot.jimple.infoflow.data.Abstraction;
-import soot.jimple.infoflow.data.Abstraction.SourceContextAndPath;
+import soot.jimple.infoflow.data.Abstraction.SourceContext;
 import soot.jimple.infoflow.data.AbstractionAtSink;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler;
@@ -71,8 +69,8 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     
-    private final Map<Unit, Set<Unit>> activationUnitsToCallSites = new ConcurrentHashMap<Unit, Set<Unit>>();
-    private final Map<Unit, Set<Abstraction>> implicitTargets = new ConcurrentHashMap<Unit, Set<Abstraction>>();
+    private final ConcurrentUnitMap<Set<Unit>> activationUnitsToCallSites;
+    private final ConcurrentUnitMap<Set<Abstraction>> implicitTargets;
     
 	protected final Set<AbstractionAtSink> results = new ConcurrentHashSet<AbstractionAtSink>();
 	protected InfoflowResults infoflowResults = null;
@@ -100,6 +98,8 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 		this.sourceSinkManager = sourceSinkManager;
 		this.aliasingStrategy = aliasingStrategy;
 		this.implicitFlowAliasingStrategy = new ImplicitFlowAliasStrategy(icfg);
+		this.activationUnitsToCallSites = new ConcurrentUnitMap<Set<Unit>>(icfg);
+		this.implicitTargets = new ConcurrentUnitMap<Set<Abstraction>>(icfg);
 	}
 
 	/**
@@ -344,12 +344,13 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 				if (activationUnit == null)
 					return false;
 				
-				synchronized (activationUnitsToCallSites) {
-					if (!activationUnitsToCallSites.containsKey(activationUnit))
-						activationUnitsToCallSites.put(activationUnit, new ConcurrentHashSet<Unit>());
-				}
-					
 				Set<Unit> callSites = activationUnitsToCallSites.get(activationUnit);
+				if (callSites == null) {
+					callSites = new ConcurrentHashSet<Unit>();
+					Set<Unit> oldSet = activationUnitsToCallSites.putIfAbsent(activationUnit, callSites);
+					if (oldSet != null)
+						callSites = oldSet;
+				}
 				return callSites.add(callSite);
 			}
 
@@ -750,6 +751,11 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
                     return KillAll.v();
                 }
                 
+                // If no sink can be reached from within the callee, the taints
+                // only flow over the call-to-return edge
+                if (sinkReachability != null && !sinkReachability.canReachSink(dest))
+                	return KillAll.v();
+                
 				final Stmt stmt = (Stmt) src;
 				final InvokeExpr ie = stmt.getInvokeExpr();
 				
@@ -809,11 +815,14 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 						if (source.getAccessPath().isEmpty()) {
 							// Block the call site for further explicit tracking
 							if (d1 != null) {
-								synchronized (implicitTargets) {
-									if (!implicitTargets.containsKey(src))
-										implicitTargets.put(src, new ConcurrentHashSet<Abstraction>());
+								Set<Abstraction> callContexts = implicitTargets.get(src);
+								if (callContexts == null) {
+									callContexts = new ConcurrentHashSet<Abstraction>();
+									Set<Abstraction> oldSet = implicitTargets.putIfAbsent(src, callContexts);
+									if (oldSet != null)
+										callContexts = oldSet;
 								}
-								implicitTargets.get(src).add(d1);
+								callContexts.add(d1);
 							}
 							
 							Abstraction abs = source.deriveConditionalAbstractionCall(src);
@@ -824,7 +833,8 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 						
 						// If we have already tracked implicits flows through this method,
 						// there is no point in tracking explicit ones afterwards as well.
-						if (implicitTargets.containsKey(src) && (d1 == null || implicitTargets.get(src).contains(d1)))
+						Set<Abstraction> implicitContexts = implicitTargets.get(src);
+						if (implicitContexts != null && (d1 == null || implicitContexts.contains(d1)))
 							return Collections.emptySet();
 
 						// Only propagate the taint if the target field is actually read
@@ -1282,7 +1292,8 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 	/**
 	 * Gets the results of the data flow analysis
 	 * @param computePaths True if the paths between sources and sinks shall
-	 * also be computed instead of just reporting that such a path exists
+	 * also be available instead of just reporting that such a path exists.
+	 * The paths themselves are only reconstructed on demand.
 	 * @return The paths between sources and sinks found by the data flow
 	 * analysis
 	 */
@@ -1290,16 +1301,18 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
     	if (this.infoflowResults != null)
     		return this.infoflowResults;
     	
-    	logger.debug("Running path reconstruction");
+    	logger.debug("Collecting sources for sinks");
     	InfoflowResults results = new InfoflowResults();
     	logger.info("Obtainted {} connections between sources and sinks", this.results.size());
     	for (AbstractionAtSink abs : this.results)
-    		for (SourceContextAndPath context : computePaths ? abs.getAbstraction().getPaths()
-    				: abs.getAbstraction().getSources())
-				results.addResult(abs.getSinkValue(), abs.getSinkStmt(),
-						context.getValue(), context.getStmt(),
-						context.getPath(), abs.getSinkStmt());
-    	logger.debug("Path reconstruction done.");
+    		for (SourceContext context : abs.getAbstraction().getSources())
+    			if (computePaths)
+    				results.addResult(abs.getSinkValue(), abs.getSinkStmt(),
+    						context.getValue(), context.getStmt(), abs.getAbstraction());
+    			else
+    				results.addResult(abs.getSinkValue(), abs.getSinkStmt(),
+    						context.getValue(), context.getStmt());
+    	logger.debug("Sources collected, paths will be reconstructed on demand.");
     	
     	this.infoflowResults = results;
 	    return results;
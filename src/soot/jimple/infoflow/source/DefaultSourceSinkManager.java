@@ -12,8 +12,11 @@ package soot.jimple.infoflow.source;
 
 import heros.InterproceduralCFG;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import soot.Scene;
 import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.IdentityStmt;
@@ -21,6 +24,8 @@ import soot.jimple.ParameterRef;
 import soot.jimple.ReturnStmt;
 import soot.jimple.Stmt;
 
+import com.google.common.collect.Sets;
+
 /**
  * A {@link ISourceSinkManager} working on lists of source and sink methods
  * 
@@ -34,6 +39,73 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	private List<String> parameterTaintMethods;
 	private List<String> returnTaintMethods;
 	
+	/**
+	 * Set of methods given by their signatures. Signatures that exist in the
+	 * Soot scene are resolved to their methods once, so that checking a
+	 * method is a single identity lookup. Only methods declared in classes
+	 * with unresolved signatures need to be compared by signature.
+	 * 
+	 * @author Steven Arzt
+	 */
+	private static class MethodSet {
+		private final Set<SootMethod> methods = Sets.newIdentityHashSet();
+		private final Set<String> unresolvedSignatures = new HashSet<String>();
+		private final Set<String> unresolvedClasses = new HashSet<String>();
+		
+		public MethodSet(List<String> signatures) {
+			if (signatures == null)
+				return;
+			for (String sig : signatures) {
+				try {
+					SootMethod sm = Scene.v().grabMethod(sig);
+					if (sm != null)
+						methods.add(sm);
+					else {
+						// The method may still be created later on, e.g., as
+						// a phantom method
+						unresolvedClasses.add(Scene.v().signatureToClass(sig));
+						unresolvedSignatures.add(sig);
+					}
+				}
+				catch (RuntimeException ex) {
+					// Not a valid signature, cannot match any method
+				}
+			}
+		}
+		
+		public boolean contains(SootMethod sm) {
+			if (methods.contains(sm))
+				return true;
+			if (unresolvedClasses.isEmpty()
+					|| !unresolvedClasses.contains(sm.getDeclaringClass().getName()))
+				return false;
+			return unresolvedSignatures.contains(sm.getSignature());
+		}
+	}
+	
+	/**
+	 * The method sets resolved against a specific Soot scene
+	 * 
+	 * @author Steven Arzt
+	 */
+	private static class Resolution {
+		private final Scene scene;
+		private final MethodSet sources;
+		private final MethodSet sinks;
+		private final MethodSet parameterTaintMethods;
+		private final MethodSet returnTaintMethods;
+		
+		public Resolution(DefaultSourceSinkManager manager) {
+			this.scene = Scene.v();
+			this.sources = new MethodSet(manager.sources);
+			this.sinks = new MethodSet(manager.sinks);
+			this.parameterTaintMethods = new MethodSet(manager.parameterTaintMethods);
+			this.returnTaintMethods = new MethodSet(manager.returnTaintMethods);
+		}
+	}
+	
+	private volatile Resolution resolution = null;
+	
 	/**
 	 * Creates a new instance of the {@link DefaultSourceSinkManager} class
 	 * @param sources The list of methods to be treated as sources
@@ -72,6 +144,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void setSources(List<String> sources){
 		this.sources = sources;
+		this.resolution = null;
 	}
 	
 	/**
@@ -80,16 +153,37 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void setSinks(List<String> sinks){
 		this.sinks = sinks;
+		this.resolution = null;
+	}
+	
+	/**
+	 * Gets the method sets for the current Soot scene. If the scene has been
+	 * replaced or the configuration has changed, the signatures are resolved
+	 * again.
+	 * @return The method sets for the current Soot scene
+	 */
+	private Resolution getResolution() {
+		Resolution res = this.resolution;
+		if (res != null && res.scene == Scene.v())
+			return res;
+		synchronized (this) {
+			res = this.resolution;
+			if (res == null || res.scene != Scene.v()) {
+				res = new Resolution(this);
+				this.resolution = res;
+			}
+			return res;
+		}
 	}
 	
 	@Override
 	public boolean isSourceMethod(SootMethod sMethod) {
-		return sources.contains(sMethod.toString());
+		return getResolution().sources.contains(sMethod);
 	}
 
 	@Override
 	public boolean isSinkMethod(SootMethod sMethod) {
-		return sinks.contains(sMethod.toString());
+		return getResolution().sinks.contains(sMethod);
 	}
 	
 	@Override
@@ -100,8 +194,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 		if (sCallSite instanceof IdentityStmt) {
 			IdentityStmt is = (IdentityStmt) sCallSite;
 			if (is.getRightOp() instanceof ParameterRef)
-				if (this.parameterTaintMethods != null && this.parameterTaintMethods.contains
-						(cfg.getMethodOf(sCallSite).getSignature()))
+				if (getResolution().parameterTaintMethods.contains(cfg.getMethodOf(sCallSite)))
 					return true;
 		}
 		
@@ -114,8 +207,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 			return true;
 
 		if (sCallSite instanceof ReturnStmt)
-			if (this.returnTaintMethods != null && this.returnTaintMethods.contains
-					(cfg.getMethodOf(sCallSite).getSignature()))
+			if (getResolution().returnTaintMethods.contains(cfg.getMethodOf(sCallSite)))
 				return true;
 	
 		return false;
@@ -129,6 +221,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void setParameterTaintMethods(List<String> parameterTaintMethods) {
 		this.parameterTaintMethods = parameterTaintMethods;
+		this.resolution = null;
 	}
 	
 	/**
@@ -139,6 +232,7 @@ public class DefaultSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void setReturnTaintMethods(List<String> returnTaintMethods) {
 		this.returnTaintMethods = returnTaintMethods;
+		this.resolution = null;
 	}
 
 }
@@ -15,7 +15,9 @@ import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.Stmt;
 /**
- * the SourceSinkManager can tell if a statement contains a source or a sink
+ * the SourceSinkManager can tell if a statement contains a source or a sink.
+ * Implementations are queried concurrently from multiple threads while the
+ * seeds for the analysis are collected.
  */
 public interface ISourceSinkManager {
 
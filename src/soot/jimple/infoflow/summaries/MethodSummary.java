@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.summaries;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summary of the data flows through a single method, i.e., for every access
+ * path that was tainted when entering the method, the access paths that are
+ * tainted when leaving it. Access paths that do not appear in the summary
+ * were never observed by the analysis and are not covered by it. This class
+ * is immutable.
+ *
+ * @author Steven Arzt
+ */
+public class MethodSummary {
+
+	private final String signature;
+	private final long bodyHash;
+	private final Map<SummaryAccessPath, Set<SummaryAccessPath>> flows;
+
+	/**
+	 * Creates a new method summary
+	 * @param signature The signature of the summarized method
+	 * @param bodyHash The hash over the bodies of the method and all methods
+	 * transitively called by it
+	 * @param flows The mapping from the access paths tainted on entering
+	 * the method to the access paths tainted on leaving it
+	 */
+	public MethodSummary(String signature, long bodyHash,
+			Map<SummaryAccessPath, Set<SummaryAccessPath>> flows) {
+		this.signature = signature;
+		this.bodyHash = bodyHash;
+		this.flows = Collections.unmodifiableMap(flows);
+	}
+
+	/**
+	 * Gets the signature of the summarized method
+	 * @return The signature of the summarized method
+	 */
+	public String getSignature() {
+		return this.signature;
+	}
+
+	/**
+	 * Gets the hash over the bodies of the summarized method and all methods
+	 * transitively called by it at the time the summary was computed
+	 * @return The hash over the bodies on which the summary depends
+	 */
+	public long getBodyHash() {
+		return this.bodyHash;
+	}
+
+	/**
+	 * Gets the access paths that are tainted when leaving the method
+	 * @param source The access path that is tainted when entering the method
+	 * @return The access paths that are tainted when leaving the method, or
+	 * null if the given access path is not covered by this summary
+	 */
+	public Set<SummaryAccessPath> getTargets(SummaryAccessPath source) {
+		return this.flows.get(source);
+	}
+
+	/**
+	 * Gets all data flows in this summary
+	 * @return The mapping from the access paths tainted on entering the
+	 * method to the access paths tainted on leaving it
+	 */
+	public Map<SummaryAccessPath, Set<SummaryAccessPath>> getFlows() {
+		return this.flows;
+	}
+
+	@Override
+	public String toString() {
+		return signature + ": " + flows;
+	}
+
+}
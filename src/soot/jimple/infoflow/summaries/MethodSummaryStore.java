@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.summaries;
+
+import heros.solver.Pair;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Local;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.ReturnStmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.heros.IInfoflowCFG;
+import soot.jimple.infoflow.heros.InfoflowSolver;
+import soot.jimple.infoflow.summaries.SummaryAccessPath.Kind;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Persistent store for the end summaries of library methods. After an
+ * analysis, the data flows through all library methods are extracted from
+ * the solver and written to disk. Later analyses, possibly of other
+ * applications, load the store and reuse the summaries through a
+ * {@link SummaryTaintWrapper} instead of analyzing the methods again.
+ *
+ * Every summary is keyed by the signature of the method and a hash over the
+ * bodies of the method and of all methods transitively called by it. The
+ * store as a whole is bound to a hash of the analysis configuration. If any
+ * of these inputs change, the affected summaries are discarded. Methods from
+ * which a source or a sink can be reached in the current scene are never
+ * summarized, since the analysis must look into them.
+ *
+ * Like all taint wrappers, summaries do not record the path inside the
+ * summarized method, and aliases which the backwards analysis would find
+ * in the callers of the summarized method are not considered.
+ *
+ * @author Steven Arzt
+ */
+public class MethodSummaryStore {
+
+	private static final int MAGIC = 0x49465353;
+	private static final int VERSION = 1;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final File file;
+	private Set<String> summarizedPackages = new HashSet<String>(Arrays.asList
+			("java.", "javax.", "android."));
+
+	private final ConcurrentMap<String, MethodSummary> summaries =
+			new ConcurrentHashMap<String, MethodSummary>();
+	private long configHash = 0;
+	private boolean loaded = false;
+
+	private IInfoflowCFG icfg = null;
+	private Set<SootMethod> excludedMethods = Collections.emptySet();
+
+	private final AtomicInteger summaryHits = new AtomicInteger(0);
+	private final AtomicInteger summaryMisses = new AtomicInteger(0);
+
+	private final LoadingCache<SootMethod, Long> methodHashes = CacheBuilder.newBuilder().build
+			(new CacheLoader<SootMethod, Long>() {
+
+				@Override
+				public Long load(SootMethod method) throws Exception {
+					long hash = hashString(method.getSignature());
+					if (method.hasActiveBody())
+						for (Unit u : method.getActiveBody().getUnits())
+							hash = hashString(hash, u.toString());
+					return hash;
+				}
+
+			});
+
+	private final LoadingCache<SootMethod, Long> closureHashes = CacheBuilder.newBuilder().build
+			(new CacheLoader<SootMethod, Long>() {
+
+				@Override
+				public Long load(SootMethod method) throws Exception {
+					// The hash must not depend on the order in which we
+					// visit the callees
+					long hash = 0;
+					Set<SootMethod> doneSet = new HashSet<SootMethod>();
+					Deque<SootMethod> worklist = new ArrayDeque<SootMethod>();
+					doneSet.add(method);
+					worklist.add(method);
+					while (!worklist.isEmpty()) {
+						SootMethod m = worklist.removeFirst();
+						hash += methodHashes.getUnchecked(m);
+						if (m.hasActiveBody())
+							for (Unit u : m.getActiveBody().getUnits())
+								if (icfg.isCallStmt(u))
+									for (SootMethod callee : icfg.getCalleesOfCallAt(u))
+										if (doneSet.add(callee))
+											worklist.add(callee);
+					}
+					return hash;
+				}
+
+			});
+
+	/**
+	 * Creates a new summary store
+	 * @param file The file in which the summaries are stored. If the file
+	 * does not exist yet, it is created when the store is saved.
+	 */
+	public MethodSummaryStore(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Sets the packages whose methods shall be summarized. By default, these
+	 * are the packages "java.", "javax." and "android.".
+	 * @param summarizedPackages The prefixes of the names of the classes
+	 * whose methods shall be summarized
+	 */
+	public void setSummarizedPackages(Set<String> summarizedPackages) {
+		this.summarizedPackages = summarizedPackages;
+	}
+
+	/**
+	 * Prepares the store for an analysis. If the summaries have not been
+	 * loaded yet or have been computed for a different configuration, they
+	 * are loaded from disk.
+	 * @param icfg The interprocedural control flow graph of the analysis
+	 * @param sourcesAndSinks The source and sink statements in the program
+	 * @param configHash The hash of the analysis configuration
+	 */
+	public void initialize(IInfoflowCFG icfg, Collection<Unit> sourcesAndSinks, long configHash) {
+		if (!loaded || this.configHash != configHash) {
+			summaries.clear();
+			this.configHash = configHash;
+			this.loaded = true;
+			if (file.exists())
+				try {
+					load();
+				}
+				catch (IOException ex) {
+					logger.warn("Could not load method summaries from " + file, ex);
+					summaries.clear();
+				}
+		}
+
+		// Everything we know about the old scene is outdated
+		this.icfg = icfg;
+		this.methodHashes.invalidateAll();
+		this.closureHashes.invalidateAll();
+		this.summaryHits.set(0);
+		this.summaryMisses.set(0);
+
+		// We must look into all methods from which we can reach a source or
+		// a sink
+		Set<SootMethod> excluded = new HashSet<SootMethod>();
+		Deque<SootMethod> worklist = new ArrayDeque<SootMethod>();
+		for (Unit u : sourcesAndSinks) {
+			SootMethod m = icfg.getMethodOf(u);
+			if (excluded.add(m))
+				worklist.add(m);
+		}
+		while (!worklist.isEmpty()) {
+			SootMethod m = worklist.removeFirst();
+			for (Unit callSite : icfg.getCallersOf(m)) {
+				SootMethod caller = icfg.getMethodOf(callSite);
+				if (excluded.add(caller))
+					worklist.add(caller);
+			}
+		}
+		this.excludedMethods = excluded;
+	}
+
+	/**
+	 * Checks whether the given method may be summarized
+	 * @param method The method to check
+	 * @return True if the given method belongs to one of the summarized
+	 * packages and does not lead to a source or a sink, otherwise false
+	 */
+	private boolean isSummarized(SootMethod method) {
+		if (excludedMethods.contains(method))
+			return false;
+		String className = method.getDeclaringClass().getName();
+		for (String pkg : summarizedPackages)
+			if (className.startsWith(pkg))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Gets the summary of the given method
+	 * @param method The method for which to get the summary
+	 * @return The summary of the given method, or null if there is no valid
+	 * summary for the method
+	 */
+	public MethodSummary getSummary(SootMethod method) {
+		if (icfg == null || !isSummarized(method))
+			return null;
+		MethodSummary summary = summaries.get(method.getSignature());
+		if (summary == null || summary.getBodyHash() != closureHashes.getUnchecked(method)) {
+			summaryMisses.incrementAndGet();
+			return null;
+		}
+		summaryHits.incrementAndGet();
+		return summary;
+	}
+
+	/**
+	 * Extracts the summaries of all library methods from the given solver
+	 * and adds them to this store. This must be called after the solver has
+	 * finished and before it is cleaned up. The analysis must not have been
+	 * pruned or aborted early, since incomplete end summaries would
+	 * otherwise be recorded.
+	 * @param solver The solver from which to extract the summaries
+	 * @return The number of summaries that have been recorded
+	 */
+	public int recordSummaries(InfoflowSolver solver) {
+		int count = 0;
+		for (int i = 0; i < icfg.getMethodCount(); i++) {
+			SootMethod m = icfg.getMethodById(i);
+			if (m == null || !m.hasActiveBody() || !isSummarized(m))
+				continue;
+
+			Map<SummaryAccessPath, Set<SummaryAccessPath>> flows =
+					new HashMap<SummaryAccessPath, Set<SummaryAccessPath>>();
+			for (Entry<Abstraction, Set<Pair<Unit, Abstraction>>> entry
+					: solver.getEndSummaries(m).entrySet()) {
+				if (!isSummarizable(entry.getKey()))
+					continue;
+				List<SummaryAccessPath> sources = toSummaryPaths(m, entry.getKey().getAccessPath(), null);
+				if (sources.size() != 1)
+					continue;
+
+				Set<SummaryAccessPath> targets = new HashSet<SummaryAccessPath>();
+				boolean valid = true;
+				for (Pair<Unit, Abstraction> exit : entry.getValue()) {
+					if (!isSummarizable(exit.getO2())) {
+						valid = false;
+						break;
+					}
+					targets.addAll(toSummaryPaths(m, exit.getO2().getAccessPath(), exit.getO1()));
+				}
+				if (valid)
+					flows.put(sources.get(0), targets);
+			}
+			if (flows.isEmpty())
+				continue;
+
+			// Keep the flows we have seen in earlier analyses
+			long bodyHash = closureHashes.getUnchecked(m);
+			MethodSummary oldSummary = summaries.get(m.getSignature());
+			if (oldSummary != null && oldSummary.getBodyHash() == bodyHash)
+				for (Entry<SummaryAccessPath, Set<SummaryAccessPath>> entry : oldSummary.getFlows().entrySet())
+					if (!flows.containsKey(entry.getKey()))
+						flows.put(entry.getKey(), entry.getValue());
+			summaries.put(m.getSignature(), new MethodSummary(m.getSignature(), bodyHash, flows));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Checks whether the given abstraction can be expressed in a summary.
+	 * Inactive taints and taints depending on conditionals always need the
+	 * context of the caller.
+	 * @param abs The abstraction to check
+	 * @return True if the given abstraction can be expressed in a summary,
+	 * otherwise false
+	 */
+	private boolean isSummarizable(Abstraction abs) {
+		return !abs.getAccessPath().isEmpty()
+				&& abs.isAbstractionActive()
+				&& abs.getTopPostdominator() == null;
+	}
+
+	/**
+	 * Converts the given access path inside the given method into access
+	 * paths relative to the method's interface
+	 * @param method The method in which the access path is valid
+	 * @param ap The access path to convert
+	 * @param exitStmt The exit statement at which the access path is valid,
+	 * or null if it is valid at the start of the method
+	 * @return The access paths relative to the method's interface, may be
+	 * empty if the access path only refers to a local of the method
+	 */
+	private List<SummaryAccessPath> toSummaryPaths(SootMethod method, AccessPath ap, Unit exitStmt) {
+		String[] fields = new String[ap.getFieldCount()];
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = ap.getField(i).getSignature();
+
+		List<SummaryAccessPath> paths = new ArrayList<SummaryAccessPath>(1);
+		if (ap.isStaticFieldRef()) {
+			paths.add(new SummaryAccessPath(Kind.Static, -1, fields));
+			return paths;
+		}
+
+		Local local = ap.getPlainLocal();
+		if (exitStmt instanceof ReturnStmt && local == ((ReturnStmt) exitStmt).getOp())
+			paths.add(new SummaryAccessPath(Kind.Return, -1, fields));
+
+		boolean isParam = false;
+		for (int i = 0; i < method.getParameterCount(); i++)
+			if (local == method.getActiveBody().getParameterLocal(i)) {
+				paths.add(new SummaryAccessPath(Kind.Parameter, i, fields));
+				isParam = true;
+			}
+		if (!isParam && !method.isStatic() && local == method.getActiveBody().getThisLocal())
+			paths.add(new SummaryAccessPath(Kind.Base, -1, fields));
+		return paths;
+	}
+
+	/**
+	 * Loads the summaries from disk
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	private void load() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				logger.warn("{} is not a method summary file, ignoring it", file);
+				return;
+			}
+			if (in.readLong() != configHash) {
+				logger.info("Method summaries in {} were computed for another configuration", file);
+				return;
+			}
+
+			String[] strings = new String[readVarInt(in)];
+			for (int i = 0; i < strings.length; i++)
+				strings[i] = in.readUTF();
+
+			int methodCount = readVarInt(in);
+			for (int i = 0; i < methodCount; i++) {
+				String signature = strings[readVarInt(in)];
+				long bodyHash = in.readLong();
+				int flowCount = readVarInt(in);
+				Map<SummaryAccessPath, Set<SummaryAccessPath>> flows =
+						new HashMap<SummaryAccessPath, Set<SummaryAccessPath>>(flowCount);
+				for (int j = 0; j < flowCount; j++) {
+					SummaryAccessPath source = readPath(in, strings);
+					int targetCount = readVarInt(in);
+					Set<SummaryAccessPath> targets = new HashSet<SummaryAccessPath>(targetCount);
+					for (int k = 0; k < targetCount; k++)
+						targets.add(readPath(in, strings));
+					flows.put(source, targets);
+				}
+				summaries.put(signature, new MethodSummary(signature, bodyHash, flows));
+			}
+			logger.info("Loaded {} method summaries from {}", methodCount, file);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the summaries to disk. The file is replaced atomically where the
+	 * platform supports it, so concurrent readers never see a partial file.
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public void save() throws IOException {
+		// Build the string table
+		Map<String, Integer> stringIds = new HashMap<String, Integer>();
+		List<String> strings = new ArrayList<String>();
+		List<MethodSummary> summaryList = new ArrayList<MethodSummary>(summaries.values());
+		for (MethodSummary summary : summaryList) {
+			addString(summary.getSignature(), stringIds, strings);
+			for (Entry<SummaryAccessPath, Set<SummaryAccessPath>> entry : summary.getFlows().entrySet()) {
+				addStrings(entry.getKey(), stringIds, strings);
+				for (SummaryAccessPath target : entry.getValue())
+					addStrings(target, stringIds, strings);
+			}
+		}
+
+		File tempFile = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(configHash);
+
+			writeVarInt(out, strings.size());
+			for (String s : strings)
+				out.writeUTF(s);
+
+			writeVarInt(out, summaryList.size());
+			for (MethodSummary summary : summaryList) {
+				writeVarInt(out, stringIds.get(summary.getSignature()));
+				out.writeLong(summary.getBodyHash());
+				writeVarInt(out, summary.getFlows().size());
+				for (Entry<SummaryAccessPath, Set<SummaryAccessPath>> entry : summary.getFlows().entrySet()) {
+					writePath(out, entry.getKey(), stringIds);
+					writeVarInt(out, entry.getValue().size());
+					for (SummaryAccessPath target : entry.getValue())
+						writePath(out, target, stringIds);
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		if (file.exists() && !file.delete())
+			throw new IOException("Could not replace " + file);
+		if (!tempFile.renameTo(file))
+			throw new IOException("Could not rename " + tempFile + " to " + file);
+		logger.info("Saved {} method summaries to {}", summaryList.size(), file);
+	}
+
+	private static void addString(String s, Map<String, Integer> stringIds, List<String> strings) {
+		if (!stringIds.containsKey(s)) {
+			stringIds.put(s, strings.size());
+			strings.add(s);
+		}
+	}
+
+	private static void addStrings(SummaryAccessPath path, Map<String, Integer> stringIds, List<String> strings) {
+		for (int i = 0; i < path.getFieldCount(); i++)
+			addString(path.getField(i), stringIds, strings);
+	}
+
+	private static void writePath(DataOutputStream out, SummaryAccessPath path,
+			Map<String, Integer> stringIds) throws IOException {
+		out.writeByte(path.getKind().ordinal());
+		if (path.getKind() == Kind.Parameter)
+			writeVarInt(out, path.getParameterIndex());
+		writeVarInt(out, path.getFieldCount());
+		for (int i = 0; i < path.getFieldCount(); i++)
+			writeVarInt(out, stringIds.get(path.getField(i)));
+	}
+
+	private static SummaryAccessPath readPath(DataInputStream in, String[] strings) throws IOException {
+		int kindId = in.readByte();
+		if (kindId < 0 || kindId >= Kind.values().length)
+			throw new IOException("Invalid access path kind: " + kindId);
+		Kind kind = Kind.values()[kindId];
+		int paramIdx = kind == Kind.Parameter ? readVarInt(in) : -1;
+		String[] fields = new String[readVarInt(in)];
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = strings[readVarInt(in)];
+		return new SummaryAccessPath(kind, paramIdx, fields);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	/**
+	 * Computes the 64-bit FNV-1a hash of the given string
+	 * @param s The string to hash
+	 * @return The hash of the given string
+	 */
+	public static long hashString(String s) {
+		return hashString(0xcbf29ce484222325L, s);
+	}
+
+	/**
+	 * Adds the given string to a 64-bit FNV-1a hash
+	 * @param hash The hash so far
+	 * @param s The string to add
+	 * @return The new hash
+	 */
+	public static long hashString(long hash, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			hash ^= s.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Gets the number of times a valid summary was found for a method
+	 * @return The number of times a valid summary was found for a method
+	 */
+	public int getSummaryHits() {
+		return summaryHits.get();
+	}
+
+	/**
+	 * Gets the number of times no valid summary was found for a library
+	 * method
+	 * @return The number of times no valid summary was found for a library
+	 * method
+	 */
+	public int getSummaryMisses() {
+		return summaryMisses.get();
+	}
+
+	/**
+	 * Gets the number of summaries in this store
+	 * @return The number of summaries in this store
+	 */
+	public int size() {
+		return summaries.size();
+	}
+
+}
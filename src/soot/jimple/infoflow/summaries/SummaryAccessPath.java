@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.summaries;
+
+import java.util.Arrays;
+
+/**
+ * Access path inside a method summary. Other than a normal access path, it
+ * does not refer to a local of the summarized method, but to the place at
+ * which the value enters or leaves the method. Fields are identified by
+ * their signatures, so that summaries can be stored independently of the
+ * Soot scene. This class is immutable.
+ *
+ * @author Steven Arzt
+ */
+public class SummaryAccessPath {
+
+	/**
+	 * The place at which a value enters or leaves the summarized method
+	 */
+	public enum Kind {
+		/**
+		 * The value is a parameter of the method
+		 */
+		Parameter,
+		/**
+		 * The value is the base object on which the method is called
+		 */
+		Base,
+		/**
+		 * The value is returned by the method
+		 */
+		Return,
+		/**
+		 * The access path starts at a static field
+		 */
+		Static
+	}
+
+	private final Kind kind;
+	private final int parameterIndex;
+	private final String[] fields;
+	private final int hashCode;
+
+	/**
+	 * Creates a new access path inside a method summary
+	 * @param kind The place at which the value enters or leaves the method
+	 * @param parameterIndex The index of the parameter if the kind is
+	 * {@link Kind#Parameter}, otherwise -1
+	 * @param fields The signatures of the fields on the access path. For
+	 * static access paths, the first field is the static field.
+	 */
+	public SummaryAccessPath(Kind kind, int parameterIndex, String[] fields) {
+		this.kind = kind;
+		this.parameterIndex = kind == Kind.Parameter ? parameterIndex : -1;
+		this.fields = fields;
+		this.hashCode = 31 * (31 * kind.hashCode() + this.parameterIndex) + Arrays.hashCode(fields);
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	public int getParameterIndex() {
+		return this.parameterIndex;
+	}
+
+	public int getFieldCount() {
+		return this.fields.length;
+	}
+
+	public String getField(int idx) {
+		return this.fields[idx];
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		SummaryAccessPath other = (SummaryAccessPath) obj;
+		return this.hashCode == other.hashCode
+				&& this.kind == other.kind
+				&& this.parameterIndex == other.parameterIndex
+				&& Arrays.equals(this.fields, other.fields);
+	}
+
+	@Override
+	public String toString() {
+		String str = kind == Kind.Parameter ? "param" + parameterIndex : kind.toString();
+		for (String field : fields)
+			str += " " + field;
+		return str;
+	}
+
+}
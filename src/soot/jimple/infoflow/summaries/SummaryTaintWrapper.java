@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.summaries;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Value;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.summaries.SummaryAccessPath.Kind;
+import soot.jimple.infoflow.taintWrappers.AbstractTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/**
+ * Taint wrapper that models calls to library methods using the summaries
+ * from a {@link MethodSummaryStore}. A call is only modeled if there is a
+ * valid summary covering the tainted access path for every possible callee.
+ * All other calls are passed on to the fallback wrapper, if there is one.
+ *
+ * @author Steven Arzt
+ */
+public class SummaryTaintWrapper extends AbstractTaintWrapper {
+
+	private final MethodSummaryStore store;
+	private final ITaintPropagationWrapper fallbackWrapper;
+
+	/**
+	 * Creates a new instance of the {@link SummaryTaintWrapper} class
+	 * @param store The store from which to take the method summaries
+	 * @param fallbackWrapper The taint wrapper to use for calls that are not
+	 * covered by a summary, may be null
+	 */
+	public SummaryTaintWrapper(MethodSummaryStore store, ITaintPropagationWrapper fallbackWrapper) {
+		this.store = store;
+		this.fallbackWrapper = fallbackWrapper;
+	}
+
+	@Override
+	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+		Set<AccessPath> taints = applySummaries(stmt, taintedPath);
+		if (taints != null)
+			return taints;
+		if (fallbackWrapper != null)
+			return fallbackWrapper.getTaintsForMethod(stmt, taintedPath);
+		return Collections.emptySet();
+	}
+
+	@Override
+	public boolean isExclusiveInternal(Stmt stmt, AccessPath taintedPath) {
+		if (applySummaries(stmt, taintedPath) != null)
+			return true;
+		return fallbackWrapper != null && fallbackWrapper.isExclusive(stmt, taintedPath);
+	}
+
+	/**
+	 * Computes the taints after the given call using the method summaries
+	 * @param stmt The call statement
+	 * @param taintedPath The access path that is tainted before the call
+	 * @return The access paths that are tainted after the call, or null if
+	 * the call is not covered by the summaries
+	 */
+	private Set<AccessPath> applySummaries(Stmt stmt, AccessPath taintedPath) {
+		if (!stmt.containsInvokeExpr() || taintedPath.isEmpty())
+			return null;
+
+		List<SummaryAccessPath> sources = toSummaryPaths(stmt.getInvokeExpr(), taintedPath);
+		if (sources.isEmpty())
+			return null;
+
+		Set<AccessPath> taints = new HashSet<AccessPath>();
+		boolean hasCallee = false;
+		for (Iterator<Edge> edgeIt = Scene.v().getCallGraph().edgesOutOf(stmt); edgeIt.hasNext(); ) {
+			SootMethod callee = edgeIt.next().tgt();
+			MethodSummary summary = store.getSummary(callee);
+			if (summary == null)
+				return null;
+
+			for (SummaryAccessPath source : sources) {
+				Set<SummaryAccessPath> targets = summary.getTargets(source);
+				if (targets == null)
+					return null;
+				for (SummaryAccessPath target : targets) {
+					AccessPath ap = toAccessPath(stmt, target);
+					if (ap == null)
+						return null;
+					if (ap != AccessPath.getEmptyAccessPath())
+						taints.add(ap);
+				}
+			}
+			hasCallee = true;
+		}
+		return hasCallee ? taints : null;
+	}
+
+	/**
+	 * Converts the given tainted access path at a call site into access
+	 * paths relative to the callee's interface
+	 * @param ie The invocation expression at the call site
+	 * @param taintedPath The tainted access path
+	 * @return The access paths relative to the callee's interface, empty if
+	 * the tainted access path is not passed to the callee
+	 */
+	private List<SummaryAccessPath> toSummaryPaths(InvokeExpr ie, AccessPath taintedPath) {
+		String[] fields = new String[taintedPath.getFieldCount()];
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = taintedPath.getField(i).getSignature();
+
+		List<SummaryAccessPath> paths = new ArrayList<SummaryAccessPath>(1);
+		if (taintedPath.isStaticFieldRef()) {
+			paths.add(new SummaryAccessPath(Kind.Static, -1, fields));
+			return paths;
+		}
+
+		Value base = taintedPath.getPlainValue();
+		if (ie instanceof InstanceInvokeExpr && ((InstanceInvokeExpr) ie).getBase() == base)
+			paths.add(new SummaryAccessPath(Kind.Base, -1, fields));
+		for (int i = 0; i < ie.getArgCount(); i++)
+			if (ie.getArg(i) == base)
+				paths.add(new SummaryAccessPath(Kind.Parameter, i, fields));
+		return paths;
+	}
+
+	/**
+	 * Converts the given access path relative to the callee's interface into
+	 * an access path at the given call site
+	 * @param stmt The call statement
+	 * @param path The access path relative to the callee's interface
+	 * @return The access path at the call site, the empty access path if the
+	 * value is not visible at the call site, or null if one of the fields
+	 * could not be resolved
+	 */
+	private AccessPath toAccessPath(Stmt stmt, SummaryAccessPath path) {
+		SootField[] fields = new SootField[path.getFieldCount()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = Scene.v().grabField(path.getField(i));
+			if (fields[i] == null)
+				return null;
+		}
+
+		Value base;
+		switch (path.getKind()) {
+			case Static:
+				return new AccessPath(null, fields);
+			case Return:
+				if (!(stmt instanceof DefinitionStmt))
+					return AccessPath.getEmptyAccessPath();
+				base = ((DefinitionStmt) stmt).getLeftOp();
+				break;
+			case Base:
+				if (!(stmt.getInvokeExpr() instanceof InstanceInvokeExpr))
+					return null;
+				base = ((InstanceInvokeExpr) stmt.getInvokeExpr()).getBase();
+				break;
+			case Parameter:
+				if (path.getParameterIndex() >= stmt.getInvokeExpr().getArgCount())
+					return null;
+				base = stmt.getInvokeExpr().getArg(path.getParameterIndex());
+				break;
+			default:
+				return null;
+		}
+		if (!AccessPath.canContainValue(base))
+			return AccessPath.getEmptyAccessPath();
+		return new AccessPath(base, fields.length == 0 ? null : fields);
+	}
+
+	/**
+	 * The summaries are only valid for the configuration of the fallback
+	 * wrapper, so this is the configuration hash of the fallback wrapper
+	 */
+	@Override
+	public long getConfigurationHash() {
+		return fallbackWrapper == null ? super.getConfigurationHash()
+				: fallbackWrapper.getConfigurationHash();
+	}
+
+	/**
+	 * Gets the taint wrapper that is used for calls not covered by a summary
+	 * @return The taint wrapper that is used for calls not covered by a
+	 * summary, or null if there is none
+	 */
+	public ITaintPropagationWrapper getFallbackWrapper() {
+		return this.fallbackWrapper;
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.summaries.MethodSummaryStore;
 
 /**
  * Abstract base class for all taint propagation wrappers
@@ -47,4 +48,14 @@ public abstract class AbstractTaintWrapper implements ITaintPropagationWrapper {
 		return wrapperMisses.get();
 	}
 
+	/**
+	 * Gets a hash over the configuration of this taint wrapper. By default,
+	 * only the class of the wrapper is considered. Wrappers whose behavior
+	 * depends on further settings must override this method.
+	 */
+	@Override
+	public long getConfigurationHash() {
+		return MethodSummaryStore.hashString(getClass().getName());
+	}
+
 }
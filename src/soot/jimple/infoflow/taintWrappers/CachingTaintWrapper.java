@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.taintWrappers;
+
+import heros.solver.Pair;
+
+import java.util.Collections;
+import java.util.Set;
+
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Taint wrapper that caches the results of another taint wrapper. The same
+ * call site is usually queried with the same access path many times, e.g.,
+ * for different calling contexts or by both the forward and the backward
+ * analysis. To cache the combined results of multiple wrappers, wrap the
+ * respective {@link TaintWrapperSet}.
+ * 
+ * @author Steven Arzt
+ */
+public class CachingTaintWrapper extends AbstractTaintWrapper {
+	
+	private final ITaintPropagationWrapper wrapper;
+	
+	private final LoadingCache<Pair<Stmt, AccessPath>, Set<AccessPath>> taintCache;
+	private final LoadingCache<Pair<Stmt, AccessPath>, Boolean> exclusiveCache;
+	
+	/**
+	 * Creates a new instance of the {@link CachingTaintWrapper} class
+	 * @param wrapper The taint wrapper whose results shall be cached
+	 * @param maximumSize The maximum number of entries in each of the caches.
+	 * If this number is exceeded, the least recently used entries are evicted.
+	 */
+	public CachingTaintWrapper(ITaintPropagationWrapper wrapper, long maximumSize) {
+		this.wrapper = wrapper;
+		
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+				.maximumSize(maximumSize).recordStats();
+		this.taintCache = builder.build(new CacheLoader<Pair<Stmt, AccessPath>, Set<AccessPath>>() {
+			@Override
+			public Set<AccessPath> load(Pair<Stmt, AccessPath> key) throws Exception {
+				Set<AccessPath> taints = CachingTaintWrapper.this.wrapper.getTaintsForMethod
+						(key.getO1(), key.getO2());
+				if (taints == null || taints.isEmpty())
+					return Collections.emptySet();
+				return Collections.unmodifiableSet(taints);
+			}
+		});
+		this.exclusiveCache = builder.build(new CacheLoader<Pair<Stmt, AccessPath>, Boolean>() {
+			@Override
+			public Boolean load(Pair<Stmt, AccessPath> key) throws Exception {
+				return CachingTaintWrapper.this.wrapper.isExclusive(key.getO1(), key.getO2());
+			}
+		});
+	}
+	
+	@Override
+	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+		return taintCache.getUnchecked(new Pair<Stmt, AccessPath>(stmt, taintedPath));
+	}
+
+	@Override
+	public boolean isExclusiveInternal(Stmt stmt, AccessPath taintedPath) {
+		return exclusiveCache.getUnchecked(new Pair<Stmt, AccessPath>(stmt, taintedPath));
+	}
+	
+	/**
+	 * The cache does not change any taints, so this is the configuration hash
+	 * of the wrapped taint wrapper
+	 */
+	@Override
+	public long getConfigurationHash() {
+		return wrapper.getConfigurationHash();
+	}
+	
+	/**
+	 * Gets the number of queries that could be answered from the caches
+	 * @return The number of cache hits
+	 */
+	public long getCacheHits() {
+		return taintCache.stats().hitCount() + exclusiveCache.stats().hitCount();
+	}
+	
+	/**
+	 * Gets the number of queries that had to be passed on to the wrapped
+	 * taint wrapper
+	 * @return The number of cache misses
+	 */
+	public long getCacheMisses() {
+		return taintCache.stats().missCount() + exclusiveCache.stats().missCount();
+	}
+	
+	/**
+	 * Gets the number of entries that have been evicted from the caches
+	 * @return The number of evicted cache entries
+	 */
+	public long getCacheEvictions() {
+		return taintCache.stats().evictionCount() + exclusiveCache.stats().evictionCount();
+	}
+	
+	/**
+	 * Gets the ratio of queries that could be answered from the caches
+	 * @return The cache hit rate, or 1.0 if there have not been any queries
+	 */
+	public double getCacheHitRate() {
+		CacheStats stats = taintCache.stats().plus(exclusiveCache.stats());
+		return stats.hitRate();
+	}
+	
+	/**
+	 * Gets the taint wrapper whose results are cached
+	 * @return The taint wrapper whose results are cached
+	 */
+	public ITaintPropagationWrapper getWrappedTaintWrapper() {
+		return this.wrapper;
+	}
+	
+}
@@ -10,6 +10,8 @@
  ******************************************************************************/
 package soot.jimple.infoflow.taintWrappers;
 
+import heros.solver.IDESolver;
+
 import java.io.*;
 import java.util.Collections;
 import java.util.HashMap;
@@ -17,11 +19,16 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 import soot.Scene;
 import soot.SootClass;
 import soot.SootMethod;
@@ -32,6 +39,7 @@ import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.StaticInvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.summaries.MethodSummaryStore;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.internal.JAssignStmt;
 
@@ -53,6 +61,85 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 	private final Set<String> includeList;
 	private boolean aggressiveMode = false;
 	
+	/**
+	 * The rules of this wrapper compiled for a single callee. All string
+	 * matching and hierarchy lookups are done when the record is created, so
+	 * queries only need to check flags.
+	 *
+	 * @author Steven Arzt
+	 */
+	private static class MethodRule {
+		/**
+		 * True if the declaring class of the method is in the include list
+		 */
+		private final boolean supported;
+		/**
+		 * True if a tainted parameter taints the base object and the return
+		 * value
+		 */
+		private final boolean wrapped;
+		/**
+		 * True if calling the method on a tainted base object kills the taint
+		 */
+		private final boolean killed;
+		/**
+		 * True if the method does not return a tainted value for a tainted
+		 * base object
+		 */
+		private final boolean excluded;
+		/**
+		 * True if there are rules for the declaring class or one of its
+		 * superclasses
+		 */
+		private final boolean hasClassRules;
+		
+		public MethodRule(boolean supported, boolean wrapped, boolean killed,
+				boolean excluded, boolean hasClassRules) {
+			this.supported = supported;
+			this.wrapped = wrapped;
+			this.killed = killed;
+			this.excluded = excluded;
+			this.hasClassRules = hasClassRules;
+		}
+	}
+	
+	/**
+	 * The rules of this wrapper compiled against a specific Soot scene. The
+	 * records depend on the class hierarchy of the scene, and they must not
+	 * keep the classes and methods of an old scene alive.
+	 *
+	 * @author Steven Arzt
+	 */
+	private class CompiledRules {
+		private final Scene scene;
+		
+		/**
+		 * The subsignatures of the wrapped methods of a class, including the
+		 * ones inherited from its superclasses and interfaces
+		 */
+		private final LoadingCache<SootClass, Set<String>> classToMethods =
+				IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SootClass, Set<String>>() {
+					@Override
+					public Set<String> load(SootClass sc) throws Exception {
+						return getMethodsForClass(CompiledRules.this, sc);
+					}
+				});
+		
+		private final LoadingCache<SootMethod, MethodRule> methodToRule =
+				IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SootMethod, MethodRule>() {
+					@Override
+					public MethodRule load(SootMethod method) throws Exception {
+						return compileRule(CompiledRules.this, method);
+					}
+				});
+		
+		public CompiledRules() {
+			this.scene = Scene.v();
+		}
+	}
+	
+	private volatile CompiledRules compiledRules = null;
+	
 	public EasyTaintWrapper(HashMap<String, List<String>> classList){
 		this.classList = classList;
 		this.excludeList = new HashMap<String, List<String>>();
@@ -126,19 +213,14 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 		Set<AccessPath> taints = new HashSet<AccessPath>();
 
 		SootMethod method = stmt.getInvokeExpr().getMethod();
-		List<String> methodList = getMethodsForClass(method.getDeclaringClass());
+		MethodRule rule = getCompiledRules().methodToRule.getUnchecked(method);
 		
 		// If the callee is a phantom class or has no body, we pass on the taint
 		if (method.isPhantom() || !method.hasActiveBody())
 			taints.add(taintedPath);
 
 		// If this is not one of the supported classes, we skip it
-		boolean isSupported = false;
-		for (String supportedClass : this.includeList)
-			if (method.getDeclaringClass().getName().startsWith(supportedClass)) {
-				isSupported = true;
-				break;
-			}
+		boolean isSupported = rule.supported;
 		if (!isSupported && !aggressiveMode)
 			return Collections.emptySet();
 
@@ -164,8 +246,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 			
 			if (iiExpr.getBase().equals(taintedPath.getPlainValue())) {
 				// If the base object is tainted, we have to check whether we must kill the taint
-				List<String> killMethods = this.killList.get(stmt.getInvokeExpr().getMethod().getDeclaringClass().getName());
-				if (killMethods != null && killMethods.contains(stmt.getInvokeExpr().getMethod().getSubSignature()))
+				if (rule.killed)
 					return Collections.emptySet();
 
 				// If the base object is tainted, all calls to its methods always return
@@ -173,9 +254,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 				if (stmt instanceof JAssignStmt) {
 					AssignStmt assign = (AssignStmt) stmt;
 					// Check for exclusions
-					List<String> excludedMethods = this.excludeList.get(assign.getInvokeExpr().getMethod().getDeclaringClass().getName());
-					if (excludedMethods == null || !excludedMethods.contains
-							(assign.getInvokeExpr().getMethod().getSubSignature()))
+					if (!rule.excluded)
 						taints.add(new AccessPath(assign.getLeftOp()));
 				}
 
@@ -192,7 +271,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 		//if param is tainted && classList contains classname && if list. contains signature of method -> add propagation
 		for (Value param : stmt.getInvokeExpr().getArgs())
 			if (param.equals(taintedPath.getPlainValue())) {		
-				if(methodList.contains(method.getSubSignature())) {
+				if(rule.wrapped) {
 					// If we call a method on an instance, this instance is assumed to be tainted
 					if(stmt.getInvokeExprBox().getValue() instanceof InstanceInvokeExpr) {
 						taints.add(new AccessPath(((InstanceInvokeExpr) stmt.getInvokeExprBox().getValue()).getBase()));
@@ -214,10 +293,56 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 		return taints;
 	}
 	
-	private List<String> getMethodsForClass(SootClass c){
+	/**
+	 * Gets the rules compiled against the current Soot scene. If the scene
+	 * has been replaced, the rules are compiled again.
+	 * @return The rules compiled against the current Soot scene
+	 */
+	private CompiledRules getCompiledRules() {
+		CompiledRules rules = this.compiledRules;
+		if (rules != null && rules.scene == Scene.v())
+			return rules;
+		synchronized (this) {
+			rules = this.compiledRules;
+			if (rules == null || rules.scene != Scene.v()) {
+				rules = new CompiledRules();
+				this.compiledRules = rules;
+			}
+			return rules;
+		}
+	}
+	
+	/**
+	 * Compiles the rules of this wrapper for the given callee
+	 * @param rules The compiled rules of the current scene
+	 * @param method The callee for which to compile the rules
+	 * @return The rules that apply to the given callee
+	 */
+	private MethodRule compileRule(CompiledRules rules, SootMethod method) {
+		SootClass declaringClass = method.getDeclaringClass();
+		String className = declaringClass.getName();
+		String subSig = method.getSubSignature();
+		
+		boolean supported = false;
+		for (String supportedClass : this.includeList)
+			if (className.startsWith(supportedClass)) {
+				supported = true;
+				break;
+			}
+		
+		List<String> killMethods = this.killList.get(className);
+		List<String> excludedMethods = this.excludeList.get(className);
+		return new MethodRule(supported,
+				rules.classToMethods.getUnchecked(declaringClass).contains(subSig),
+				killMethods != null && killMethods.contains(subSig),
+				excludedMethods != null && excludedMethods.contains(subSig),
+				hasMethodsForClass(declaringClass));
+	}
+	
+	private Set<String> getMethodsForClass(CompiledRules rules, SootClass c){
 		assert c != null;
 		
-		List<String> methodList = new LinkedList<String>();
+		Set<String> methodList = new HashSet<String>();
 		if(classList.containsKey(c.getName())){
 			methodList.addAll(classList.get(c.getName()));
 		}
@@ -228,14 +353,14 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 			List<SootClass> superclasses = Scene.v().getActiveHierarchy().getSuperclassesOf(c);
 			for(SootClass sclass : superclasses){
 				if(classList.containsKey(sclass.getName()))
-					methodList.addAll(getMethodsForClass(sclass));
+					methodList.addAll(rules.classToMethods.getUnchecked(sclass));
 			}
 		}
 		
 		// If we implement interfaces, we also need to check whether they in
 		// turn are in our method list
 		for (SootClass ifc : c.getInterfaces())
-			methodList.addAll(getMethodsForClass(ifc));
+			methodList.addAll(rules.classToMethods.getUnchecked(ifc));
 		
 		return methodList;
 	}
@@ -269,9 +394,42 @@ public class EasyTaintWrapper extends AbstractTaintWrapper {
 				return true;
 		}
 		
-		return hasMethodsForClass(method.getDeclaringClass());
+		return getCompiledRules().methodToRule.getUnchecked(method).hasClassRules;
 	}
 	
+	/**
+	 * Hashes all rules of this wrapper, so that editing the rules file
+	 * invalidates the method summaries computed with the old rules
+	 */
+	@Override
+	public long getConfigurationHash() {
+		long hash = super.getConfigurationHash();
+		hash = hashRules(hash, "", classList);
+		hash = hashRules(hash, "~", excludeList);
+		hash = hashRules(hash, "-", killList);
+		for (String className : new TreeSet<String>(includeList))
+			hash = MethodSummaryStore.hashString(hash, "^" + className);
+		return MethodSummaryStore.hashString(hash, Boolean.toString(aggressiveMode));
+	}
+	
+	/**
+	 * Adds the given rules to a configuration hash. The rules are hashed in
+	 * sorted order, so the hash does not depend on the order of the maps.
+	 * @param hash The hash so far
+	 * @param prefix The prefix that denotes the kind of the rules
+	 * @param rules The rules as a mapping from class names to methods
+	 * @return The new hash
+	 */
+	private static long hashRules(long hash, String prefix, Map<String, List<String>> rules) {
+		Set<String> sortedRules = new TreeSet<String>();
+		for (Entry<String, List<String>> entry : rules.entrySet())
+			for (String method : entry.getValue())
+				sortedRules.add(prefix + entry.getKey() + ": " + method);
+		for (String rule : sortedRules)
+			hash = MethodSummaryStore.hashString(hash, rule);
+		return hash;
+	}
+
 	/**
 	 * Sets whether the taint wrapper shall always assume the return value of a
 	 * call "a = x.foo()" to be tainted if the base object is tainted, even if
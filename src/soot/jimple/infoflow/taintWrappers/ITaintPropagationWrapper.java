@@ -61,4 +61,13 @@ public interface ITaintPropagationWrapper {
 	 */
 	public int getWrapperMisses();
 
+	/**
+	 * Gets a hash over the configuration of this taint wrapper, e.g., the
+	 * rules it applies. Two wrappers with the same hash must produce the same
+	 * taints for the same calls. Stored method summaries are invalidated
+	 * when this hash changes.
+	 * @return The hash over the configuration of this taint wrapper
+	 */
+	public long getConfigurationHash();
+
 }
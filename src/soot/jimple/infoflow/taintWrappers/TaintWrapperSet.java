@@ -19,7 +19,9 @@ import soot.jimple.infoflow.data.AccessPath;
 /**
  * Set of taint wrappers. It supports taint wrapping for a class if at least one
  * of the contained wrappers supports it. The resulting taints are the union of
- * all taints produced by the contained wrappers.
+ * all taints produced by the contained wrappers. Wrap the set into a
+ * {@link CachingTaintWrapper} to avoid querying all contained wrappers again
+ * for the same call site and taint.
  * 
  * @author Steven Arzt
  */
@@ -38,9 +40,12 @@ public class TaintWrapperSet extends AbstractTaintWrapper {
 	@Override
 	public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
 		Set<AccessPath> resList = new HashSet<AccessPath>();
-		for (ITaintPropagationWrapper w : this.wrappers)
-			resList.addAll(w.getTaintsForMethod(stmt, taintedPath));
-		return new HashSet<AccessPath>(resList);
+		for (ITaintPropagationWrapper w : this.wrappers) {
+			Set<AccessPath> taints = w.getTaintsForMethod(stmt, taintedPath);
+			if (taints != null)
+				resList.addAll(taints);
+		}
+		return resList;
 	}
 
 	@Override
@@ -50,4 +55,16 @@ public class TaintWrapperSet extends AbstractTaintWrapper {
 				return true;
 		return false;
 	}
+
+	/**
+	 * Combines the configuration hashes of all contained wrappers. The order
+	 * of the wrappers in the set does not matter.
+	 */
+	@Override
+	public long getConfigurationHash() {
+		long hash = super.getConfigurationHash();
+		for (ITaintPropagationWrapper w : this.wrappers)
+			hash += w.getConfigurationHash();
+		return hash;
+	}
 }
@@ -296,6 +296,23 @@ public class HeapTestCode {
 		cm.publish(dc3.next.data);
 	}	
 	
+	private String aliasEither(String first, String second, boolean useFirst) {
+		String data = useFirst ? first : second;
+		DataClass dc = new DataClass();
+		DataClass alias = null;
+		alias = dc;
+		dc.data = data;
+		return alias.data;
+	}
+	
+	public void sharedAliasQueryTest() {
+		String s1 = aliasEither(TelephonyManager.getDeviceId(), "", true);
+		String s2 = aliasEither("", TelephonyManager.getDeviceId(), false);
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(s1);
+		cm.publish(s2);
+	}
+	
 	public void overwriteAliasTest() {
 		DataClass dc = new DataClass();
 		DataClass dc2 = null;
@@ -465,6 +465,20 @@ public class ImplicitFlowTestCode {
 		String s = "foo";
 		a.data = s;
 	}
+	
+	private void storeAndSet(B b) {
+		A a = new A();
+		b.a = a;
+		a.data = "foo";
+	}
+	
+	public void conditionalAliasingTest3() {
+		B b = new B();
+		if (TelephonyManager.getIMEI() == 42)
+			storeAndSet(b);
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(b.a.data);
+	}
 
 	public void afterCallNegativeTest() {
 		A a = new A();
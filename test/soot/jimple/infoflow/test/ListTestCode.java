@@ -89,6 +89,21 @@ public class ListTestCode {
 		cm.publish(taintedElement);
 	}
 
+	private String passThroughList(String first, String second, boolean useFirst) {
+		String data = useFirst ? first : second;
+		List<String> list = new ArrayList<String>();
+		list.add(data);
+		return list.get(0);
+	}
+
+	public void repeatedCallTest() {
+		String tainted1 = passThroughList(TelephonyManager.getDeviceId(), "", true);
+		String tainted2 = passThroughList("", TelephonyManager.getDeviceId(), false);
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(tainted1);
+		cm.publish(tainted2);
+	}
+
 	public void subListTest() {
 		String tainted = TelephonyManager.getDeviceId();
 		List<String> list = new ArrayList<String>();
@@ -444,5 +444,23 @@ public class OtherTestCode {
 		
 		cm.publish((String) ll1.nextElement.nextElement.nextElement.nextElement.nextElement.element);
 	}
+	
+	private String unpublishedString;
+	private int unpublishedInt;
+	
+	public void sinkReachabilityTest() {
+		String tainted = TelephonyManager.getDeviceId();
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(tainted);
+		
+		// No sink can be reached from here on
+		int imei = TelephonyManager.getIMEI();
+		storeUnpublished(tainted, imei);
+	}
+	
+	private void storeUnpublished(String s, int i) {
+		this.unpublishedString = s;
+		this.unpublishedInt = i;
+	}
 		
 }
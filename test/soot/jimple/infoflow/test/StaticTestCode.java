@@ -103,5 +103,31 @@ public class StaticTestCode {
 		ConnectionManager cm = new ConnectionManager();
 		cm.publish(im);
 	}
+
+	private static final StaticDataClass2 staticAliasData = new StaticDataClass2();
+	
+	private static void storeStaticAlias(String secret) {
+		StaticDataClass2 data = staticAliasData;
+		data.data = secret;
+	}
+	
+	private void staticAliasLeak() {
+		StaticDataClass2 alias = staticAliasData;
+		storeStaticAlias(TelephonyManager.getDeviceId());
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(alias.data);
+	}
+	
+	private void staticAliasNoLeak() {
+		StaticDataClass2 other = new StaticDataClass2();
+		storeStaticAlias(TelephonyManager.getDeviceId());
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(other.data);
+	}
+	
+	public void staticAliasTest() {
+		staticAliasLeak();
+		staticAliasNoLeak();
+	}
 	
 }
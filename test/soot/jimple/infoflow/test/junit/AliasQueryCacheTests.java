@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+
+/**
+ * Tests for sharing the backward alias searches between forward contexts
+ */
+public class AliasQueryCacheTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void multiAliasTest(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableAliasQueryCache(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void multiAliasTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertEquals(1, infoflow.getResults().size());
+	}
+
+	@Test(timeout=300000)
+	public void overwriteAliasTest(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableAliasQueryCache(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void overwriteAliasTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+		Assert.assertEquals(0, infoflow.getResults().size());
+	}
+
+	@Test(timeout=300000)
+	public void functionAliasTest(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableAliasQueryCache(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void functionAliasTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertEquals(1, infoflow.getResults().size());
+	}
+
+	@Test(timeout=300000)
+	public void functionAliasTest2(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableAliasQueryCache(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void functionAliasTest2()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertEquals(1, infoflow.getResults().size());
+	}
+
+	@Test(timeout=300000)
+	public void staticAliasTest(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableAliasQueryCache(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.StaticTestCode: void staticAliasTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertEquals(1, infoflow.getResults().size());
+	}
+
+	@Test(timeout=300000)
+	public void sharedAliasQueryTest(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableAliasQueryCache(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void sharedAliasQueryTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		
+		// The helper stores the same field in the contexts of both of its
+		// tainted parameters, so the second context reuses the search
+		Assert.assertTrue(infoflow.getAliasQueryReuseCount() > 0);
+	}
+
+	@Test(timeout=300000)
+	public void noSharedAliasQueryTest(){
+		taintWrapper = false;
+		Infoflow infoflow = initInfoflow();
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void sharedAliasQueryTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		Assert.assertEquals(0, infoflow.getAliasQueryReuseCount());
+	}
+
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.IntType;
+import soot.Local;
+import soot.jimple.Jimple;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.internal.JimpleLocal;
+
+/**
+ * Tests for stopping the analysis once its budget is exhausted
+ */
+public class BudgetTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void edgeBudgetTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxPropagatedEdges(1);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		assertTrue(infoflow.isResultAvailable());
+		assertTrue(infoflow.getResults().isPartial());
+		
+		// Partial results must not spend any time on path reconstruction
+		for (Set<SourceInfo> sourceInfos : infoflow.getResults().getResults().values())
+			for (SourceInfo source : sourceInfos)
+				assertNull(source.getComputedPath());
+	}
+
+	@Test(timeout=300000)
+	public void sufficientBudgetTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxPropagatedEdges(Integer.MAX_VALUE);
+		infoflow.setAnalysisTimeout(240000);
+		infoflow.setMaxHeapUsage(Long.MAX_VALUE);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertFalse(infoflow.getResults().isPartial());
+	}
+
+	@Test
+	public void pathTimeoutTest(){
+		Local source = new JimpleLocal("source", IntType.v());
+		Local sink = new JimpleLocal("sink", IntType.v());
+		Stmt sourceStmt = Jimple.v().newNopStmt();
+		Stmt stmt = Jimple.v().newNopStmt();
+		Stmt sinkStmt = Jimple.v().newNopStmt();
+		
+		Abstraction sourceAbs = new Abstraction(source, source, sourceStmt, false, true, null, true);
+		Abstraction sinkAbs = sourceAbs.deriveNewAbstraction(new AccessPath(sink), stmt);
+		
+		// Without any time left, no path may be reconstructed upfront
+		InfoflowResults results = new InfoflowResults();
+		results.addResult(sink, sinkStmt, source, sourceStmt, sinkAbs);
+		results.computePaths(10, 1, 0);
+		for (Set<SourceInfo> sourceInfos : results.getResults().values())
+			for (SourceInfo si : sourceInfos)
+				assertNull(si.getComputedPath());
+		
+		results = new InfoflowResults();
+		results.addResult(sink, sinkStmt, source, sourceStmt, sinkAbs);
+		results.computePaths(10, 1, 60000);
+		for (Set<SourceInfo> sourceInfos : results.getResults().values())
+			for (SourceInfo si : sourceInfos)
+				assertNotNull(si.getComputedPath());
+	}
+
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.taintWrappers.CachingTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.TaintWrapperSet;
+import soot.jimple.infoflow.test.utilclasses.TestWrapper;
+
+/**
+ * Checks that caching the results of a taint wrapper does not change the
+ * results of the analysis
+ */
+public class CachingWrapperTests extends JUnitTests {
+	
+	private final EasyTaintWrapper easyWrapper;
+	
+	public CachingWrapperTests() throws IOException {
+		easyWrapper = new EasyTaintWrapper(new File("EasyTaintWrapperSource.txt"));
+	}
+
+	/**
+	 * Counts the pairs of sinks and sources in the results of the given
+	 * analysis
+	 * @param infoflow The analysis whose results to count
+	 * @return The number of connections between sinks and sources
+	 */
+	private static int countConnections(Infoflow infoflow) {
+		int connections = 0;
+		for (Set<SourceInfo> sourceInfos : infoflow.getResults().getResults().values())
+			connections += sourceInfos.size();
+		return connections;
+	}
+
+	@Test(timeout=300000)
+    public void listIteratorTest(){
+		Infoflow infoflow = initInfoflow();
+		CachingTaintWrapper wrapper = new CachingTaintWrapper(easyWrapper, 1000);
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.ListTestCode: void iteratorTest()>");
+    	infoflow.setTaintWrapper(wrapper);
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertTrue(wrapper.getCacheMisses() > 0);
+    }
+	
+	@Test(timeout=300000)
+    public void concreteArrayListNegativeTest(){
+    	Infoflow infoflow = initInfoflow();
+    	List<String> epoints = new ArrayList<String>();
+    	epoints.add("<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadNegativeTest()>");
+    	infoflow.setTaintWrapper(new CachingTaintWrapper(easyWrapper, 1000));
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void repeatedCallSiteTest(){
+		Infoflow infoflow = initInfoflow();
+		CachingTaintWrapper wrapper = new CachingTaintWrapper(easyWrapper, 1000);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.ListTestCode: void repeatedCallTest()>");
+		infoflow.setTaintWrapper(wrapper);
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		
+		// The list calls in the helper method are reached in two contexts,
+		// one per tainted parameter, with the same tainted local
+		assertTrue(wrapper.getCacheHits() > 0);
+	}
+
+	@Test(timeout=300000)
+	public void wrapperSetTest(){
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.ListTestCode: void repeatedCallTest()>");
+		
+		TaintWrapperSet wrapperSet = new TaintWrapperSet();
+		wrapperSet.addWrapper(new TestWrapper());
+		wrapperSet.addWrapper(easyWrapper);
+		
+		Infoflow infoflow = initInfoflow();
+		infoflow.setTaintWrapper(wrapperSet);
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		int uncachedResults = countConnections(infoflow);
+		
+		// A tiny cache forces evictions, but must not change the results
+		infoflow = initInfoflow();
+		CachingTaintWrapper wrapper = new CachingTaintWrapper(wrapperSet, 2);
+		infoflow.setTaintWrapper(wrapper);
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+		assertEquals(uncachedResults, countConnections(infoflow));
+		assertTrue(wrapper.getCacheEvictions() > 0);
+	}
+
+}
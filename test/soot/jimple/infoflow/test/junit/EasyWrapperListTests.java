@@ -60,6 +60,19 @@ public class EasyWrapperListTests extends JUnitTests {
 		negativeCheckInfoflow(infoflow);
   }
     
+    @Test(timeout=300000)
+    public void sceneResetTest(){
+    	// The same wrapper is used for two analyses with fresh Soot scenes
+    	for (int i = 0; i < 2; i++) {
+    		Infoflow infoflow = initInfoflow();
+    		List<String> epoints = new ArrayList<String>();
+    		epoints.add("<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>");
+    		infoflow.setTaintWrapper(easyWrapper);
+    		infoflow.computeInfoflow(path, epoints,sources, sinks);
+    		checkInfoflow(infoflow, 1);
+    	}
+    }
+    
     @Test(timeout=300000)
     public void listTest(){
     	Infoflow infoflow = initInfoflow();
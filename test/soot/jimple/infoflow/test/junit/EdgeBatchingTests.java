@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.IInfoflow.SchedulingStrategy;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.test.utilclasses.TestWrapper;
+
+/**
+ * Tests for processing intra-procedural path edges in batches
+ */
+public class EdgeBatchingTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void batchingTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableEdgeBatching(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertTrue(infoflow.getEdgeBatchCount() > 0);
+		assertTrue(infoflow.getBatchedEdgeCount() >= infoflow.getEdgeBatchCount());
+	}
+
+	@Test(timeout=300000)
+	public void noBatchingTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableEdgeBatching(false);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertEquals(0, infoflow.getEdgeBatchCount());
+		assertEquals(0, infoflow.getBatchedEdgeCount());
+	}
+
+	@Test(timeout=300000)
+	public void batchingNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableEdgeBatching(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void negativeTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void batchingLoopTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableEdgeBatching(true);
+		infoflow.setTaintWrapper(new TestWrapper());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertTrue(infoflow.getEdgeBatchCount() > 0);
+	}
+
+	@Test(timeout=300000)
+	public void batchingWorkStealingTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableEdgeBatching(true);
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertTrue(infoflow.getEdgeBatchCount() > 0);
+	}
+
+}
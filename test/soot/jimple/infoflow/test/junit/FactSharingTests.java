@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.data.ConcurrentFactSharingPool;
+import soot.jimple.infoflow.data.IFactSharingPool;
+import soot.jimple.infoflow.test.utilclasses.TestWrapper;
+
+/**
+ * Checks that sharing equal facts between abstractions does not change the
+ * results of the analysis
+ */
+public class FactSharingTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void heapTest1(){
+		Infoflow infoflow = initInfoflow();
+		IFactSharingPool pool = new ConcurrentFactSharingPool();
+		infoflow.setFactSharingPool(pool);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertTrue(pool.getMisses() > 0);
+	}
+
+	@Test(timeout=300000)
+	public void testForLoop(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setFactSharingPool(new ConcurrentFactSharingPool());
+		infoflow.setTaintWrapper(new TestWrapper());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void negativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setFactSharingPool(new ConcurrentFactSharingPool());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void negativeTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void implicitFlowTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setFactSharingPool(new ConcurrentFactSharingPool());
+		infoflow.setEnableImplicitFlows(true);
+		infoflow.setInspectSinks(false);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.ImplicitFlowTestCode: void simpleTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void implicitFlowNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setFactSharingPool(new ConcurrentFactSharingPool());
+		infoflow.setEnableImplicitFlows(true);
+		infoflow.setInspectSinks(false);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.ImplicitFlowTestCode: void simpleNegativeTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+}
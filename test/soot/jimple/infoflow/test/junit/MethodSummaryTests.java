@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.summaries.MethodSummaryStore;
+import soot.jimple.infoflow.taintWrappers.CachingTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+
+/**
+ * Checks that reusing persisted summaries of library methods does not
+ * change the results of the analysis, and that the summaries are discarded
+ * when the taint wrapper changes
+ */
+public class MethodSummaryTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void reuseSummariesTest() throws IOException {
+		File file = File.createTempFile("summaries", ".bin");
+		file.delete();
+		try {
+			List<String> epoints = new ArrayList<String>();
+			epoints.add("<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>");
+
+			Infoflow infoflow = initInfoflow();
+			infoflow.setMethodSummaryStore(new MethodSummaryStore(file));
+			infoflow.computeInfoflow(path, epoints,sources, sinks);
+			checkInfoflow(infoflow, 1);
+			assertTrue(file.exists());
+
+			// A fresh store must load the summaries from disk
+			MethodSummaryStore store = new MethodSummaryStore(file);
+			infoflow = initInfoflow();
+			infoflow.setMethodSummaryStore(store);
+			infoflow.computeInfoflow(path, epoints,sources, sinks);
+			checkInfoflow(infoflow, 1);
+			assertTrue(store.size() > 0);
+			assertTrue(store.getSummaryHits() > 0);
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	@Test(timeout=300000)
+	public void negativeTest() throws IOException {
+		File file = File.createTempFile("summaries", ".bin");
+		file.delete();
+		try {
+			List<String> epoints = new ArrayList<String>();
+			epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void negativeTest()>");
+			for (int i = 0; i < 2; i++) {
+				Infoflow infoflow = initInfoflow();
+				infoflow.setMethodSummaryStore(new MethodSummaryStore(file));
+				infoflow.computeInfoflow(path, epoints,sources, sinks);
+				negativeCheckInfoflow(infoflow);
+			}
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Creates a taint wrapper with rules for the given methods of
+	 * java.lang.StringBuilder
+	 * @param methods The subsignatures of the methods to wrap
+	 * @return The new taint wrapper
+	 */
+	private EasyTaintWrapper createWrapper(String... methods) {
+		HashMap<String, List<String>> classList = new HashMap<String, List<String>>();
+		classList.put("java.lang.StringBuilder", new ArrayList<String>(Arrays.asList(methods)));
+		return new EasyTaintWrapper(classList);
+	}
+
+	@Test
+	public void wrapperConfigurationHashTest() {
+		EasyTaintWrapper wrapper = createWrapper("java.lang.String toString()",
+				"java.lang.StringBuilder append(java.lang.String)");
+		EasyTaintWrapper reorderedWrapper = createWrapper("java.lang.StringBuilder append(java.lang.String)",
+				"java.lang.String toString()");
+		EasyTaintWrapper otherWrapper = createWrapper("java.lang.String toString()");
+		
+		assertEquals(wrapper.getConfigurationHash(), reorderedWrapper.getConfigurationHash());
+		assertFalse(wrapper.getConfigurationHash() == otherWrapper.getConfigurationHash());
+		assertEquals(wrapper.getConfigurationHash(),
+				new CachingTaintWrapper(wrapper, 100).getConfigurationHash());
+		
+		long hash = wrapper.getConfigurationHash();
+		wrapper.setAggressiveMode(true);
+		assertFalse(hash == wrapper.getConfigurationHash());
+	}
+
+	@Test(timeout=300000)
+	public void changedWrapperRulesTest() throws IOException {
+		File file = File.createTempFile("summaries", ".bin");
+		file.delete();
+		try {
+			List<String> epoints = new ArrayList<String>();
+			epoints.add("<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>");
+
+			Infoflow infoflow = initInfoflow();
+			infoflow.setTaintWrapper(createWrapper("java.lang.String toString()"));
+			infoflow.setMethodSummaryStore(new MethodSummaryStore(file));
+			infoflow.computeInfoflow(path, epoints,sources, sinks);
+			checkInfoflow(infoflow, 1);
+			
+			// The same rules must reuse the summaries
+			MethodSummaryStore store = new MethodSummaryStore(file);
+			infoflow = initInfoflow();
+			infoflow.setTaintWrapper(createWrapper("java.lang.String toString()"));
+			infoflow.setMethodSummaryStore(store);
+			infoflow.computeInfoflow(path, epoints,sources, sinks);
+			checkInfoflow(infoflow, 1);
+			assertTrue(store.getSummaryHits() > 0);
+
+			// Changed rules must invalidate the summaries
+			store = new MethodSummaryStore(file);
+			infoflow = initInfoflow();
+			infoflow.setTaintWrapper(createWrapper("java.lang.String toString()",
+					"java.lang.StringBuilder append(java.lang.String)"));
+			infoflow.setMethodSummaryStore(store);
+			infoflow.computeInfoflow(path, epoints,sources, sinks);
+			checkInfoflow(infoflow, 1);
+			assertEquals(0, store.getSummaryHits());
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+}
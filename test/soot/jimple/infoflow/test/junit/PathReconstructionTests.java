@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.IntType;
+import soot.Local;
+import soot.jimple.Jimple;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.Abstraction.SourceContext;
+import soot.jimple.infoflow.data.Abstraction.SourceContextAndPath;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.internal.JimpleLocal;
+
+/**
+ * Tests for the on-demand reconstruction of the paths between sources and
+ * sinks
+ */
+public class PathReconstructionTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void lazyPathTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxPathsPerSink(0);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		
+		for (Entry<SinkInfo, Set<SourceInfo>> entry : infoflow.getResults().getResults().entrySet())
+			for (SourceInfo source : entry.getValue()) {
+				assertNull(source.getComputedPath());
+				List<Stmt> path = source.getPath();
+				assertEquals(path, source.getComputedPath());
+				assertNotNull(path);
+				assertEquals(source.getContext(), path.get(0));
+				assertEquals(entry.getKey().getContext(), path.get(path.size() - 1));
+			}
+	}
+
+	@Test(timeout=300000)
+	public void maxPathLengthTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxPathLength(0);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		
+		for (Set<SourceInfo> sourceInfos : infoflow.getResults().getResults().values())
+			for (SourceInfo source : sourceInfos)
+				assertNull(source.getPath());
+	}
+
+	/**
+	 * The sink abstraction reaches the source both over two predecessor edges
+	 * and over a neighbor followed by a single predecessor edge. The path
+	 * over the neighbor must be found even if the search sees the longer
+	 * path first.
+	 */
+	@Test
+	public void neighborPathTest(){
+		Local source = new JimpleLocal("source", IntType.v());
+		Local a = new JimpleLocal("a", IntType.v());
+		Local t = new JimpleLocal("t", IntType.v());
+		Stmt sourceStmt = Jimple.v().newNopStmt();
+		Stmt stmtA = Jimple.v().newNopStmt();
+		Stmt stmtN = Jimple.v().newNopStmt();
+		Stmt stmtT = Jimple.v().newNopStmt();
+		
+		Abstraction sourceAbs = new Abstraction(source, source, sourceStmt, false, true, null, true);
+		Abstraction absA = sourceAbs.deriveNewAbstraction(new AccessPath(a), stmtA);
+		Abstraction absN = sourceAbs.deriveNewAbstraction(new AccessPath(t), stmtN);
+		Abstraction absT = absA.deriveNewAbstraction(new AccessPath(t), stmtT);
+		absT.addNeighbor(absN);
+		
+		SourceContextAndPath scap = absT.getPath(new SourceContext(source, sourceStmt), 1);
+		assertNotNull(scap);
+		assertEquals(2, scap.getPath().size());
+		assertEquals(sourceStmt, scap.getPath().get(0));
+		assertEquals(stmtN, scap.getPath().get(1));
+		
+		assertNull(absT.getPath(new SourceContext(source, sourceStmt), 0));
+	}
+
+	/**
+	 * The sink abstraction reaches the source over three predecessor edges
+	 * and over a neighbor whose predecessor chain starts with a step that
+	 * has no statement. The latter path is shorter and must be found even
+	 * though the search reaches the shared abstraction over the longer path
+	 * first.
+	 */
+	@Test
+	public void nullStmtPathTest(){
+		Local source = new JimpleLocal("source", IntType.v());
+		Stmt sourceStmt = Jimple.v().newNopStmt();
+		Stmt stmtX = Jimple.v().newNopStmt();
+		Stmt stmtA = Jimple.v().newNopStmt();
+		Stmt stmtB = Jimple.v().newNopStmt();
+		Stmt stmtT = Jimple.v().newNopStmt();
+		Local t = new JimpleLocal("t", IntType.v());
+		
+		Abstraction sourceAbs = new Abstraction(source, source, sourceStmt, false, true, null, true);
+		Abstraction absX = sourceAbs.deriveNewAbstraction(
+				new AccessPath(new JimpleLocal("x", IntType.v())), stmtX);
+		Abstraction absA = absX.deriveNewAbstraction(
+				new AccessPath(new JimpleLocal("a", IntType.v())), stmtA);
+		Abstraction absB = absX.deriveNewAbstraction(
+				new AccessPath(new JimpleLocal("b", IntType.v())), stmtB);
+		Abstraction absM = absB.deriveNewAbstraction(new AccessPath(t), null);
+		Abstraction absT = absA.deriveNewAbstraction(new AccessPath(t), stmtT);
+		absT.addNeighbor(absM);
+		
+		SourceContextAndPath scap = absT.getPath(new SourceContext(source, sourceStmt), 2);
+		assertNotNull(scap);
+		assertEquals(3, scap.getPath().size());
+		assertEquals(sourceStmt, scap.getPath().get(0));
+		assertEquals(stmtX, scap.getPath().get(1));
+		assertEquals(stmtB, scap.getPath().get(2));
+	}
+
+}
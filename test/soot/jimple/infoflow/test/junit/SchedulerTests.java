@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.IInfoflow.SchedulingStrategy;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.heros.PriorityTaskQueue;
+import soot.jimple.infoflow.heros.WorkStealingTaskQueue;
+
+/**
+ * Tests for the different strategies of scheduling the path edges on the
+ * worker threads and for the task queues that implement them
+ */
+public class SchedulerTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void workStealingTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void workStealingNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void negativeTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void priorityTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.Priority);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void priorityStopAfterFirstFlowTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.Priority);
+		infoflow.setStopAfterFirstFlow(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	/**
+	 * Creates a task that does nothing
+	 * @return The new task
+	 */
+	private static Runnable createTask() {
+		return new Runnable() {
+			
+			@Override
+			public void run() {
+			}
+			
+		};
+	}
+
+	@Test
+	public void priorityQueueOrderTest(){
+		PriorityTaskQueue queue = new PriorityTaskQueue();
+		Runnable low = createTask();
+		Runnable high1 = createTask();
+		Runnable high2 = createTask();
+		Runnable noHint = createTask();
+		
+		queue.setPriorityHint(5);
+		queue.offer(low);
+		queue.setPriorityHint(1);
+		queue.offer(high1);
+		queue.offer(noHint);
+		queue.setPriorityHint(1);
+		queue.offer(high2);
+		
+		// Lower values first, submission order for equal values
+		assertSame(noHint, queue.poll());
+		assertSame(high1, queue.poll());
+		assertSame(high2, queue.poll());
+		assertSame(low, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	@Test(timeout=10000)
+	public void workStealingQueueTest() throws InterruptedException {
+		final WorkStealingTaskQueue queue = new WorkStealingTaskQueue();
+		final Runnable first = createTask();
+		final Runnable second = createTask();
+		final Runnable third = createTask();
+		final Runnable[] taken = new Runnable[2];
+		
+		// The owner registers its deque and schedules three tasks
+		Thread owner = new Thread() {
+			
+			@Override
+			public void run() {
+				queue.poll();
+				queue.offer(first);
+				queue.offer(second);
+				queue.offer(third);
+			}
+			
+		};
+		owner.start();
+		owner.join();
+		
+		// A thief takes the oldest task from the owner's deque
+		Thread thief = new Thread() {
+			
+			@Override
+			public void run() {
+				taken[0] = queue.poll();
+				taken[1] = queue.poll();
+			}
+			
+		};
+		thief.start();
+		thief.join();
+		
+		assertSame(first, taken[0]);
+		assertSame(second, taken[1]);
+		assertEquals(1, queue.size());
+		assertSame(third, queue.poll());
+		assertEquals(0, queue.size());
+	}
+
+	@Test(timeout=10000)
+	public void workStealingOwnerLifoTest() throws InterruptedException {
+		final WorkStealingTaskQueue queue = new WorkStealingTaskQueue();
+		final Runnable first = createTask();
+		final Runnable second = createTask();
+		final Runnable[] taken = new Runnable[2];
+		
+		// The owner continues with the task it has scheduled last
+		Thread owner = new Thread() {
+			
+			@Override
+			public void run() {
+				queue.poll();
+				queue.offer(first);
+				queue.offer(second);
+				taken[0] = queue.poll();
+				taken[1] = queue.poll();
+			}
+			
+		};
+		owner.start();
+		owner.join();
+		
+		assertSame(second, taken[0]);
+		assertSame(first, taken[1]);
+	}
+
+}
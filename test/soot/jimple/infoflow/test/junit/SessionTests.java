@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.taintWrappers.AbstractTaintWrapper;
+import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+
+/**
+ * Tests for running multiple queries on the same Soot scene
+ */
+public class SessionTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void repeatedQueryTest(){
+		Infoflow infoflow = initInfoflow();
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.initializeSession(path, new DefaultEntryPointCreator(), epoints);
+
+		infoflow.computeInfoflow(sources, sinks);
+		checkInfoflow(infoflow, 1);
+
+		infoflow.computeInfoflow(sources, sinks);
+		checkInfoflow(infoflow, 1);
+		infoflow.closeSession();
+	}
+
+	@Test(timeout=300000)
+	public void changeTaintWrapperTest() throws IOException {
+		Infoflow infoflow = initInfoflow();
+		infoflow.initializeSession(path, "<soot.jimple.infoflow.test.StringTestCode: void methodStringBuilder1()>");
+
+		// The rules of the easy wrapper pass the taint through the builder
+		infoflow.setTaintWrapper(new EasyTaintWrapper(new File("EasyTaintWrapperSource.txt")));
+		infoflow.computeInfoflow(sources, sinks);
+		checkInfoflow(infoflow, 1);
+
+		// This wrapper takes over all calls and never produces a taint
+		infoflow.setTaintWrapper(new AbstractTaintWrapper() {
+			
+			@Override
+			public Set<AccessPath> getTaintsForMethod(Stmt stmt, AccessPath taintedPath) {
+				return Collections.emptySet();
+			}
+			
+			@Override
+			public boolean isExclusiveInternal(Stmt stmt, AccessPath taintedPath) {
+				return true;
+			}
+			
+		});
+		infoflow.computeInfoflow(sources, sinks);
+		negativeCheckInfoflow(infoflow);
+		infoflow.closeSession();
+	}
+
+	@Test(timeout=300000)
+	public void noSessionTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.computeInfoflow(sources, sinks);
+		assertFalse(infoflow.isResultAvailable());
+	}
+
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
+import soot.jimple.infoflow.handlers.TaintPropagationHandler;
+import soot.jimple.infoflow.heros.IInfoflowCFG;
+import soot.jimple.infoflow.heros.SinkReachability;
+import soot.jimple.infoflow.test.utilclasses.TestWrapper;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Checks that pruning the analysis to the statements from which a sink can
+ * be reached does not change the results, and that sources and callees from
+ * which no sink can be reached are actually pruned
+ */
+public class SinkReachabilityTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void heapTest1(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void testForLoop(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		infoflow.setTaintWrapper(new TestWrapper());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void fieldTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void staticTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.StaticTestCode: void static2Test()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void lifecycleTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.utilclasses.D1static: boolean start()>");
+		epoints.add("<soot.jimple.infoflow.test.utilclasses.D1static: boolean taintIt()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void negativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void negativeTest()>");
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	private static final String pruningEntryPoint =
+			"<soot.jimple.infoflow.test.OtherTestCode: void sinkReachabilityTest()>";
+	private static final String prunedCallee =
+			"<soot.jimple.infoflow.test.OtherTestCode: void storeUnpublished(java.lang.String,int)>";
+
+	/**
+	 * Records the methods in which the data flow engine has propagated a
+	 * taint
+	 */
+	private static class VisitedMethodsHandler implements TaintPropagationHandler {
+
+		private final Set<SootMethod> visitedMethods = Collections.newSetFromMap
+				(new ConcurrentHashMap<SootMethod, Boolean>());
+
+		@Override
+		public void notifyFlowIn(Unit stmt, Set<Abstraction> taints,
+				BiDiInterproceduralCFG<Unit, SootMethod> cfg, FlowFunctionType type) {
+			visitedMethods.add(cfg.getMethodOf(stmt));
+		}
+
+		public boolean hasVisited(String signature) {
+			for (SootMethod sm : visitedMethods)
+				if (sm.getSignature().equals(signature))
+					return true;
+			return false;
+		}
+
+	}
+
+	@Test(timeout=300000)
+	public void pruningTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableSinkReachability(true);
+		VisitedMethodsHandler handler = new VisitedMethodsHandler();
+		infoflow.addTaintPropagationHandler(handler);
+		
+		// Recompute the reachability on the final program graph to check
+		// which statements and methods have been pruned
+		final boolean[] reachability = new boolean[3];
+		infoflow.addResultsAvailableHandler(new ResultsAvailableHandler() {
+			
+			@Override
+			public void onResultsAvailable(BiDiInterproceduralCFG<Unit, SootMethod> cfg,
+					InfoflowResults results) {
+				Unit deviceIdStmt = null;
+				Unit imeiStmt = null;
+				List<Unit> sinkStmts = new ArrayList<Unit>();
+				for (Unit u : Scene.v().getMethod(pruningEntryPoint).getActiveBody().getUnits()) {
+					Stmt stmt = (Stmt) u;
+					if (!stmt.containsInvokeExpr())
+						continue;
+					String callee = stmt.getInvokeExpr().getMethod().getSignature();
+					if (callee.equals(sourceDeviceId))
+						deviceIdStmt = u;
+					else if (callee.equals(sourceIMEI))
+						imeiStmt = u;
+					else if (callee.equals(sink))
+						sinkStmts.add(u);
+				}
+				
+				SinkReachability sinkReachability = new SinkReachability((IInfoflowCFG) cfg, sinkStmts);
+				reachability[0] = sinkReachability.canReachSink(deviceIdStmt);
+				reachability[1] = sinkReachability.canReachSink(imeiStmt);
+				reachability[2] = sinkReachability.canReachSink(Scene.v().getMethod(prunedCallee));
+			}
+			
+		});
+		
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(pruningEntryPoint);
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		
+		assertTrue(reachability[0]);
+		assertFalse(reachability[1]);
+		assertFalse(reachability[2]);
+		assertFalse(handler.hasVisited(prunedCallee));
+	}
+
+	@Test(timeout=300000)
+	public void noPruningTest(){
+		Infoflow infoflow = initInfoflow();
+		VisitedMethodsHandler handler = new VisitedMethodsHandler();
+		infoflow.addTaintPropagationHandler(handler);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(pruningEntryPoint);
+		infoflow.computeInfoflow(path, epoints,sources, sinks);
+		checkInfoflow(infoflow, 1);
+		assertTrue(handler.hasVisited(prunedCallee));
+	}
+
+}